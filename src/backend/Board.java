@@ -1,141 +1,305 @@
 package backend;
 
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Optional;
 
 final class Board {
     static final int ROW_COUNT = 8;
     static final int COLUMN_COUNT = 8;
+    static final int SQUARE_COUNT = ROW_COUNT * COLUMN_COUNT;
+    private static final int MAX_FULL_MOVES = 1_000_000;
+    private static final int INITIAL_HISTORY_LENGTH = 256;
+    static final int CASTLING_RIGHTS_COMBINATIONS = 1 << 4;
+    private static final int ALL_CASTLING_RIGHTS = CASTLING_RIGHTS_COMBINATIONS - 1;
+
+    // The castling rights which remain after a move from or to each square, so only king and rook squares clear any
+    static final int[][] CASTLING_RIGHTS_KEPT = new int[ROW_COUNT][COLUMN_COUNT];
+
+    static {
+        for (var row : CASTLING_RIGHTS_KEPT) {
+            Arrays.fill(row, ALL_CASTLING_RIGHTS);
+        }
+        for (var color : Color.values()) {
+            var row = CASTLING_RIGHTS_KEPT[color.piecesRow()];
+            row[0] &= ~longCastleRight(color);
+            row[COLUMN_COUNT / 2] &= ~(shortCastleRight(color) | longCastleRight(color));
+            row[COLUMN_COUNT - 1] &= ~shortCastleRight(color);
+        }
+    }
 
     final Piece[][] squares = new Piece[ROW_COUNT][COLUMN_COUNT];
-    final Map<Long, Integer> repetitions = new HashMap<>();
-    BitSet shortCastleRights = new BitSet();
-    BitSet longCastleRights = new BitSet();
+    // How many of each piece are on the board, kept up to date by captures and promotions, indexed by piece
+    final int[] pieceCounts = new int[Piece.COUNT];
+    // The hash of the position before each move, indexed by ply, which is enough to detect repetitions
+    long[] hashHistory = new long[INITIAL_HISTORY_LENGTH];
+    int historySize;
+    // Bit flags of which sides each player may still castle on, see shortCastleRight and longCastleRight
+    int castlingRights;
     Position enPassantTarget;
     Color activePlayer;
     Zobrist zobrist;
     int halfMoveClock;
+    int fullMoveNumber = 1;
 
-    Board(String fen) {
-        var elements = fen.split(" ");
-        if (elements.length != 4 && elements.length != 6) {
-            throw new IllegalArgumentException("The fen string is malformed: bad attribute count");
+    Board(CharSequence fen) {
+        int index = skipSpaces(fen, 0);
+        index = setBoard(fen, index);
+        index = nextAttribute(fen, index);
+        index = setActivePlayer(fen, index);
+        index = nextAttribute(fen, index);
+        index = setCastlingRights(fen, index);
+        index = nextAttribute(fen, index);
+        index = setEnPassantTarget(fen, index);
+        index = skipSpaces(fen, index);
+        if (index < fen.length()) {
+            index = setPlies(fen, index);
+            index = nextAttribute(fen, index);
+            index = setFullMoves(fen, index);
+            if (skipSpaces(fen, index) < fen.length()) {
+                throw new IllegalArgumentException("The fen string is malformed: bad attribute count");
+            }
         }
-        setBoard(elements[0]);
-        setActivePlayer(elements[1]);
-        setCastlingRights(elements[2]);
-        setEnPassantTarget(elements[3]);
-        if (elements.length == 6) {
-            setPlies(elements[4]);
+        finishSetUp("fen string");
+    }
+
+    // Set up square by square by PackedPosition, which then calls finishSetUp
+    Board() {
+    }
+
+    Board(Board other) {
+        for (int i = 0; i < ROW_COUNT; i++) {
+            System.arraycopy(other.squares[i], 0, squares[i], 0, COLUMN_COUNT);
         }
-        validateKing();
-        validateCastling();
-        zobrist = new Zobrist(activePlayer, squares, shortCastleRights, longCastleRights, enPassantTarget);
-        repetitions.put(zobrist.getHash(), 1);
+        System.arraycopy(other.pieceCounts, 0, pieceCounts, 0, Piece.COUNT);
+        hashHistory = Arrays.copyOf(other.hashHistory, other.hashHistory.length);
+        historySize = other.historySize;
+        castlingRights = other.castlingRights;
+        enPassantTarget = other.enPassantTarget;
+        activePlayer = other.activePlayer;
+        zobrist = new Zobrist(other.zobrist);
+        halfMoveClock = other.halfMoveClock;
+        fullMoveNumber = other.fullMoveNumber;
     }
 
-    private void setBoard(String positions) {
-        var rows = positions.split("/");
-        if (rows.length != ROW_COUNT) {
-            throw new IllegalArgumentException("The fen string is malformed: row count is incorrect");
+    private static int skipSpaces(CharSequence fen, int index) {
+        while (index < fen.length() && fen.charAt(index) == ' ') {
+            index++;
         }
-        for (int i = 0; i < rows.length; i++) {
-            int j = 0;
-            for (char c : rows[i].toCharArray()) {
-                if (Character.isDigit(c)) {
-                    j += Character.getNumericValue(c);
-                    continue;
+        return index;
+    }
+
+    private static boolean isAttributeEnd(CharSequence fen, int index) {
+        return index >= fen.length() || fen.charAt(index) == ' ';
+    }
+
+    private static int nextAttribute(CharSequence fen, int index) {
+        if (!isAttributeEnd(fen, index)) {
+            throw new IllegalArgumentException("The fen string is malformed: attributes must be separated by spaces");
+        }
+        index = skipSpaces(fen, index);
+        if (index >= fen.length()) {
+            throw new IllegalArgumentException("The fen string is malformed: bad attribute count");
+        }
+        return index;
+    }
+
+    private int setBoard(CharSequence fen, int index) {
+        int i = 0;
+        int j = 0;
+        for (; !isAttributeEnd(fen, index); index++) {
+            char c = fen.charAt(index);
+            if (c == '/') {
+                if (j != COLUMN_COUNT) {
+                    throw new IllegalArgumentException("The fen string is malformed: incorrect column count");
                 }
-                var color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
-                var piece = switch (Character.toLowerCase(c)) {
-                    case 'p':
-                        yield Piece.Type.PAWN;
-                    case 'n':
-                        yield Piece.Type.KNIGHT;
-                    case 'b':
-                        yield Piece.Type.BISHOP;
-                    case 'r':
-                        yield Piece.Type.ROOK;
-                    case 'q':
-                        yield Piece.Type.QUEEN;
-                    case 'k':
-                        yield Piece.Type.KING;
-                    default:
-                        throw new IllegalArgumentException("The fen string is malformed: invalid piece letter");
-                };
-                if (j > COLUMN_COUNT) {
-                    throw new IllegalArgumentException("The fen string is malformed: too many columns");
+                i++;
+                j = 0;
+                if (i >= ROW_COUNT) {
+                    throw new IllegalArgumentException("The fen string is malformed: row count is incorrect");
                 }
-                squares[i][j] = new Piece(piece, color);
-                j++;
+                continue;
             }
-            if (j != COLUMN_COUNT) {
-                throw new IllegalArgumentException("The fen string is malformed: incorrect column count");
+            if (c >= '1' && c <= '9') {
+                j += c - '0';
+                continue;
             }
+            var color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+            var piece = switch (Character.toLowerCase(c)) {
+                case 'p':
+                    yield Piece.Type.PAWN;
+                case 'n':
+                    yield Piece.Type.KNIGHT;
+                case 'b':
+                    yield Piece.Type.BISHOP;
+                case 'r':
+                    yield Piece.Type.ROOK;
+                case 'q':
+                    yield Piece.Type.QUEEN;
+                case 'k':
+                    yield Piece.Type.KING;
+                default:
+                    throw new IllegalArgumentException("The fen string is malformed: invalid piece letter");
+            };
+            if (j >= COLUMN_COUNT) {
+                throw new IllegalArgumentException("The fen string is malformed: too many columns");
+            }
+            squares[i][j] = Piece.of(piece, color);
+            pieceCounts[squares[i][j].index]++;
+            j++;
+        }
+        if (i != ROW_COUNT - 1) {
+            throw new IllegalArgumentException("The fen string is malformed: row count is incorrect");
         }
+        if (j != COLUMN_COUNT) {
+            throw new IllegalArgumentException("The fen string is malformed: incorrect column count");
+        }
+        return index;
     }
 
-    private void setActivePlayer(String activeColor) {
-        if (activeColor.equals("w")) {
+    private int setActivePlayer(CharSequence fen, int index) {
+        if (!isAttributeEnd(fen, index + 1)) {
+            throw new IllegalArgumentException("The fen string is malformed: invalid active player value");
+        }
+        char activeColor = fen.charAt(index);
+        if (activeColor == 'w') {
             activePlayer = Color.WHITE;
-        } else if (activeColor.equals("b")) {
+        } else if (activeColor == 'b') {
             activePlayer = Color.BLACK;
         } else {
             throw new IllegalArgumentException("The fen string is malformed: invalid active player value");
         }
+        return index + 1;
     }
 
-    private void setCastlingRights(String castlingRights) {
-        if (castlingRights.equals("-")) {
-            return;
+    private int setCastlingRights(CharSequence fen, int index) {
+        if (fen.charAt(index) == '-' && isAttributeEnd(fen, index + 1)) {
+            return index + 1;
         }
-        for (char c : castlingRights.toCharArray()) {
-            switch (c) {
-                case 'K' -> shortCastleRights.set(Color.WHITE.bitIndex());
-                case 'Q' -> longCastleRights.set(Color.WHITE.bitIndex());
-                case 'k' -> shortCastleRights.set(Color.BLACK.bitIndex());
-                case 'q' -> longCastleRights.set(Color.BLACK.bitIndex());
+        for (; !isAttributeEnd(fen, index); index++) {
+            switch (fen.charAt(index)) {
+                case 'K' -> castlingRights |= shortCastleRight(Color.WHITE);
+                case 'Q' -> castlingRights |= longCastleRight(Color.WHITE);
+                case 'k' -> castlingRights |= shortCastleRight(Color.BLACK);
+                case 'q' -> castlingRights |= longCastleRight(Color.BLACK);
                 default -> throw new IllegalArgumentException("The fen string is malformed: invalid castling value");
             }
         }
+        return index;
     }
 
-    private void setEnPassantTarget(String target) {
-        if (target.equals("-")) {
-            return;
+    private int setEnPassantTarget(CharSequence fen, int index) {
+        if (fen.charAt(index) == '-' && isAttributeEnd(fen, index + 1)) {
+            return index + 1;
         }
-        var chars = target.toCharArray();
-        if (chars.length != 2) {
+        if (isAttributeEnd(fen, index + 1) || !isAttributeEnd(fen, index + 2)) {
             throw new IllegalArgumentException("The fen string is malformed: invalid en passant target");
         }
-        int column = chars[0] - 'a';
+        int column = fen.charAt(index) - 'a';
         if (column < 0 || column >= COLUMN_COUNT) {
             throw new IllegalArgumentException("The fen string is malformed: invalid en passant target column");
         }
-        int row = Character.getNumericValue(chars[1]);
-        if (row < 0 || row >= ROW_COUNT) {
+        int rank = fen.charAt(index + 1) - '0';
+        if (rank < 1 || rank > ROW_COUNT) {
             throw new IllegalArgumentException("The fen string is malformed: invalid en passant target row");
         }
-        enPassantTarget = new Position(row, column);
+        enPassantTarget = Position.of(ROW_COUNT - rank, column);
+        return index + 2;
     }
 
-    private void setPlies(String halfMoves) {
-        try {
-            halfMoveClock = Integer.parseInt(halfMoves);
-            if (halfMoveClock < 0) {
-                throw new IllegalArgumentException("The fen string is malformed: half move clock is negative");
-            }
+    private int setPlies(CharSequence fen, int index) {
+        if (fen.charAt(index) == '-') {
+            throw new IllegalArgumentException("The fen string is malformed: half move clock is negative");
+        }
+        halfMoveClock = 0;
+        for (; !isAttributeEnd(fen, index); index++) {
+            halfMoveClock = 10 * halfMoveClock + digit(fen.charAt(index), "invalid half move clock");
             if (halfMoveClock > Game.FIFTY_MOVE_RULE_PLY_COUNT) {
                 throw new IllegalArgumentException("The fen string is malformed: more plies than 50 move rule allows");
             }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("The fen string is malformed: invalid half move clock");
         }
+        return index;
+    }
+
+    private int setFullMoves(CharSequence fen, int index) {
+        int moves = 0;
+        for (; !isAttributeEnd(fen, index); index++) {
+            moves = 10 * moves + digit(fen.charAt(index), "invalid full move number");
+            if (moves > MAX_FULL_MOVES) {
+                throw new IllegalArgumentException("The fen string is malformed: full move number is too large");
+            }
+        }
+        fullMoveNumber = Math.max(1, moves);
+        return index;
+    }
+
+    private static int digit(char c, String problem) {
+        if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("The fen string is malformed: " + problem);
+        }
+        return c - '0';
     }
 
-    private void validateKing() {
+    void appendFen(StringBuilder fen) {
+        for (int i = 0; i < ROW_COUNT; i++) {
+            int emptyCount = 0;
+            for (int j = 0; j < COLUMN_COUNT; j++) {
+                var piece = squares[i][j];
+                if (piece == null) {
+                    emptyCount++;
+                    continue;
+                }
+                if (emptyCount > 0) {
+                    fen.append(emptyCount);
+                    emptyCount = 0;
+                }
+                char letter = Notation.letter(piece.type);
+                fen.append(piece.color == Color.WHITE ? letter : Character.toLowerCase(letter));
+            }
+            if (emptyCount > 0) {
+                fen.append(emptyCount);
+            }
+            if (i < ROW_COUNT - 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(activePlayer == Color.WHITE ? " w " : " b ");
+        if (canCastleShort(Color.WHITE)) {
+            fen.append('K');
+        }
+        if (canCastleLong(Color.WHITE)) {
+            fen.append('Q');
+        }
+        if (canCastleShort(Color.BLACK)) {
+            fen.append('k');
+        }
+        if (canCastleLong(Color.BLACK)) {
+            fen.append('q');
+        }
+        if (castlingRights == 0) {
+            fen.append('-');
+        }
+        fen.append(' ');
+        if (enPassantTarget == null) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + enPassantTarget.column)).append(ROW_COUNT - enPassantTarget.row);
+        }
+        fen.append(' ').append(halfMoveClock).append(' ').append(fullMoveNumber);
+    }
+
+    /**
+     * Checks the position once its attributes are set, and hashes it.
+     *
+     * @param format what the position was read from, for the error messages
+     */
+    void finishSetUp(String format) {
+        validateKing(format);
+        validateCastling(format);
+        validateEnPassant(format);
+        zobrist = new Zobrist(activePlayer, squares, castlingRights, enPassantTarget);
+    }
+
+    private void validateKing(String format) {
         int whiteKingCount = 0;
         int blackKingCount = 0;
         for (int i = 0; i < ROW_COUNT; i++) {
@@ -151,59 +315,180 @@ final class Board {
             }
         }
         if (whiteKingCount != 1) {
-            throw new IllegalArgumentException("The fen string is malformed: must have one white king");
+            throw new IllegalArgumentException("The " + format + " is malformed: must have one white king");
         }
         if (blackKingCount != 1) {
-            throw new IllegalArgumentException("The fen string is malformed: must have one black king");
+            throw new IllegalArgumentException("The " + format + " is malformed: must have one black king");
         }
     }
 
-    private void validateCastling() {
-        if (longCastleRights.get(Color.BLACK.bitIndex())) {
-            validatePiece(squares[0][0], Piece.Type.ROOK, Color.BLACK);
-            validatePiece(squares[0][COLUMN_COUNT / 2], Piece.Type.KING, Color.BLACK);
+    private void validateCastling(String format) {
+        if (canCastleLong(Color.BLACK)) {
+            validatePiece(squares[0][0], Piece.Type.ROOK, Color.BLACK, format);
+            validatePiece(squares[0][COLUMN_COUNT / 2], Piece.Type.KING, Color.BLACK, format);
+        }
+        if (canCastleShort(Color.BLACK)) {
+            validatePiece(squares[0][COLUMN_COUNT - 1], Piece.Type.ROOK, Color.BLACK, format);
+            validatePiece(squares[0][COLUMN_COUNT / 2], Piece.Type.KING, Color.BLACK, format);
+        }
+        if (canCastleLong(Color.WHITE)) {
+            validatePiece(squares[ROW_COUNT - 1][0], Piece.Type.ROOK, Color.WHITE, format);
+            validatePiece(squares[ROW_COUNT - 1][COLUMN_COUNT / 2], Piece.Type.KING, Color.WHITE, format);
         }
-        if (shortCastleRights.get(Color.BLACK.bitIndex())) {
-            validatePiece(squares[0][COLUMN_COUNT - 1], Piece.Type.ROOK, Color.BLACK);
-            validatePiece(squares[0][COLUMN_COUNT / 2], Piece.Type.KING, Color.BLACK);
+        if (canCastleShort(Color.WHITE)) {
+            validatePiece(squares[ROW_COUNT - 1][COLUMN_COUNT - 1], Piece.Type.ROOK, Color.WHITE, format);
+            validatePiece(squares[ROW_COUNT - 1][COLUMN_COUNT / 2], Piece.Type.KING, Color.WHITE, format);
         }
-        if (longCastleRights.get(Color.WHITE.bitIndex())) {
-            validatePiece(squares[ROW_COUNT - 1][0], Piece.Type.ROOK, Color.WHITE);
-            validatePiece(squares[ROW_COUNT - 1][COLUMN_COUNT / 2], Piece.Type.KING, Color.WHITE);
+    }
+
+    // The target must be the square a pawn of the other player just jumped over, with that pawn just past it
+    private void validateEnPassant(String format) {
+        if (enPassantTarget == null) {
+            return;
         }
-        if (shortCastleRights.get(Color.WHITE.bitIndex())) {
-            validatePiece(squares[ROW_COUNT - 1][COLUMN_COUNT - 1], Piece.Type.ROOK, Color.WHITE);
-            validatePiece(squares[ROW_COUNT - 1][COLUMN_COUNT / 2], Piece.Type.KING, Color.WHITE);
+        var jumped = activePlayer.next();
+        int pawnRow = enPassantTarget.row + jumped.pawnMove();
+        if (enPassantTarget.row != jumped.pawnsRow() + jumped.pawnMove()
+                || squares[pawnRow][enPassantTarget.column] != Piece.of(Piece.Type.PAWN, jumped)) {
+            throw new IllegalArgumentException("The " + format + " is malformed: invalid en passant target");
         }
     }
 
-    private void validatePiece(Piece piece, Piece.Type type, Color color) {
+    private static void validatePiece(Piece piece, Piece.Type type, Color color, String format) {
         if (piece == null || piece.type != type || piece.color != color) {
-            throw new IllegalArgumentException("The fen string is malformed: invalid castling rights");
+            throw new IllegalArgumentException("The " + format + " is malformed: invalid castling rights");
         }
     }
 
-    private boolean isSquare(Position position) {
-        return position.row >= 0 && position.row < ROW_COUNT
-                && position.column >= 0 && position.column < COLUMN_COUNT;
+    static int shortCastleRight(Color color) {
+        return 1 << (2 * color.bitIndex());
+    }
+
+    static int longCastleRight(Color color) {
+        return 2 << (2 * color.bitIndex());
+    }
+
+    boolean canCastleShort(Color color) {
+        return (castlingRights & shortCastleRight(color)) != 0;
+    }
+
+    boolean canCastleLong(Color color) {
+        return (castlingRights & longCastleRight(color)) != 0;
     }
 
     Optional<Piece> get(Position position) {
-        if (!isSquare(position)) {
-            return Optional.empty();
+        return Optional.ofNullable(squares[position.row][position.column]);
+    }
+
+    // Takes a row and column rather than a position, so that squares off the board can be checked without one
+    boolean isFree(int row, int column) {
+        return Position.isSquare(row, column) && squares[row][column] == null;
+    }
+
+    boolean isEnemy(int row, int column) {
+        if (!Position.isSquare(row, column)) {
+            return false;
         }
-        var piece = squares[position.row][position.column];
-        if (piece == null) {
-            return Optional.empty();
+        var piece = squares[row][column];
+        return piece != null && piece.color != activePlayer;
+    }
+
+    int count(Piece.Type type, Color color) {
+        return pieceCounts[Piece.of(type, color).index];
+    }
+
+    Position kingPosition(Color color) {
+        var king = Piece.of(Piece.Type.KING, color);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            for (int j = 0; j < COLUMN_COUNT; j++) {
+                if (squares[i][j] == king) {
+                    return Position.of(i, j);
+                }
+            }
         }
-        return Optional.of(piece);
+        throw new IllegalStateException("No " + color + " king");
     }
 
-    boolean isFree(Position position) {
-        return isSquare(position) && squares[position.row][position.column] == null;
+    /**
+     * Looks outwards from the square for each type of piece which could attack it, rather than generating the moves
+     * of every enemy piece and looking for one that ends on the square.
+     *
+     * @param position the square which may be attacked
+     * @param attacker the player whose pieces may attack the square
+     * @return if any piece of the attacker attacks the square
+     */
+    boolean isAttacked(Position position, Color attacker) {
+        int pawnRow = position.row - attacker.pawnMove();
+        if (isPiece(pawnRow, position.column - 1, Piece.Type.PAWN, attacker)
+                || isPiece(pawnRow, position.column + 1, Piece.Type.PAWN, attacker)) {
+            return true;
+        }
+        return isStepAttacked(position, Piece.KNIGHT_JUMPS, Piece.Type.KNIGHT, attacker)
+                || isStepAttacked(position, Piece.KING_STEPS, Piece.Type.KING, attacker)
+                || isRayAttacked(position, Piece.DIAGONALS, Piece.Type.BISHOP, attacker)
+                || isRayAttacked(position, Piece.STRAIGHTS, Piece.Type.ROOK, attacker);
     }
 
-    boolean isEnemy(Position position) {
-        return get(position).isPresent() && get(position).get().color != activePlayer;
+    private boolean isStepAttacked(Position position, int[][] steps, Piece.Type type, Color attacker) {
+        for (var step : steps) {
+            if (isPiece(position.row + step[0], position.column + step[1], type, attacker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The queen attacks along the rays of both the bishop and the rook
+    private boolean isRayAttacked(Position position, int[][] directions, Piece.Type type, Color attacker) {
+        for (var direction : directions) {
+            int row = position.row + direction[0];
+            int column = position.column + direction[1];
+            while (isFree(row, column)) {
+                row += direction[0];
+                column += direction[1];
+            }
+            if (isPiece(row, column, type, attacker) || isPiece(row, column, Piece.Type.QUEEN, attacker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isPiece(int row, int column, Piece.Type type, Color color) {
+        return Position.isSquare(row, column) && squares[row][column] == Piece.of(type, color);
+    }
+
+    void pushHistory() {
+        if (historySize == hashHistory.length) {
+            hashHistory = Arrays.copyOf(hashHistory, 2 * hashHistory.length);
+        }
+        hashHistory[historySize++] = zobrist.getHash();
+    }
+
+    void popHistory() {
+        historySize--;
+    }
+
+    /**
+     * Looks back for earlier occurrences of the current position. Only positions with the same player to move and
+     * no irreversible move since then can be the same, so the search steps back two plies at a time and stops at the
+     * last capture or pawn move.
+     *
+     * @param occurrences how many earlier occurrences to look for
+     * @return if the position occurred at least that many times before
+     */
+    boolean isRepeated(int occurrences) {
+        long hash = zobrist.getHash();
+        int oldest = Math.max(0, historySize - halfMoveClock);
+        int count = 0;
+        for (int i = historySize - 2; i >= oldest; i -= 2) {
+            if (hashHistory[i] == hash) {
+                count++;
+                if (count == occurrences) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 }
@@ -2,21 +2,72 @@ package backend;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 public final class Game {
     private static final int THREEFOLD_REPETITION_COUNT = 3;
     static final int FIFTY_MOVE_RULE_PLY_COUNT = 2 * 50;
 
-    private final Board board;
+    final Board board;
 
-    public Game(String fen) {
+    public Game(CharSequence fen) {
         board = new Board(fen);
     }
 
+    Game(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Copies the position along with its repetition history, so that the copy can be searched or played on from
+     * another thread without affecting this game. Moves generated for this game only ever apply to this game.
+     *
+     * @return an independent copy of the game
+     */
+    public Game copy() {
+        return new Game(new Board(board));
+    }
+
+    /**
+     * Serializes the position, including the half move clock and full move number.
+     *
+     * @return the position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        var fen = new StringBuilder();
+        board.appendFen(fen);
+        return fen.toString();
+    }
+
+    /**
+     * Serializes the position onto the end of an existing builder, so that many positions can be written without
+     * creating a string for each of them.
+     *
+     * @param fen the builder to append the position to
+     */
+    public void appendFen(StringBuilder fen) {
+        board.appendFen(fen);
+    }
+
     public Color getActivePlayer() {
         return board.activePlayer;
     }
 
+    public Optional<Position> getEnPassantTarget() {
+        return Optional.ofNullable(board.enPassantTarget);
+    }
+
+    /**
+     * Reads one square without copying the board, for callers which only need a few squares.
+     *
+     * @param row    the row, counting from the eighth rank
+     * @param column the column, counting from the a file
+     * @return the piece on the square, or null if it is empty
+     */
+    public Piece getPiece(int row, int column) {
+        return board.squares[row][column];
+    }
+
     public Piece[][] getBoard() {
         var squares = new Piece[Board.ROW_COUNT][Board.COLUMN_COUNT];
         for (int i = 0; i < Board.ROW_COUNT; i++) {
@@ -25,12 +76,35 @@ public final class Game {
         return squares;
     }
 
+    /**
+     * Counts the pieces on the board from counters the board keeps up to date, without looking at the squares.
+     *
+     * @return how many pieces of both players are on the board, kings included
+     */
+    public int pieceCount() {
+        int count = 0;
+        for (int pieceCount : board.pieceCounts) {
+            count += pieceCount;
+        }
+        return count;
+    }
+
+    /**
+     * Counts one kind of piece from the counters the board keeps up to date, without looking at the squares.
+     *
+     * @param piece the type and color of piece to count
+     * @return how many of the piece are on the board
+     */
+    public int pieceCount(Piece piece) {
+        return board.pieceCounts[piece.index];
+    }
+
     public int castleOpportunities(Color color) {
         int opportunities = 0;
-        if (board.shortCastleRights.get(color.bitIndex())) {
+        if (board.canCastleShort(color)) {
             opportunities++;
         }
-        if (board.longCastleRights.get(color.bitIndex())) {
+        if (board.canCastleLong(color)) {
             opportunities++;
         }
         return opportunities;
@@ -40,11 +114,68 @@ public final class Game {
         return board.zobrist.getHash();
     }
 
+    /**
+     * Encodes a move in standard algebraic notation, such as Nbd7, exd6, O-O or e8=Q#. The move must be legal in the
+     * current position, which is restored before returning.
+     *
+     * @param move the move to encode
+     * @return the move in standard algebraic notation
+     */
+    public String toSan(Move move) {
+        return Notation.toSan(this, board, move);
+    }
+
+    /**
+     * Decodes a move in standard algebraic notation. Only the pieces which attack the destination square are
+     * considered, rather than every legal move.
+     *
+     * @param san the move in standard algebraic notation
+     * @return the move, which has not been performed
+     */
+    public Move fromSan(String san) {
+        return Notation.fromSan(this, board, san);
+    }
+
+    /**
+     * Decodes a move in long algebraic notation as used by UCI, such as e2e4 or e7e8q.
+     *
+     * @param uci the move in long algebraic notation
+     * @return the move, which has not been performed
+     */
+    public Move fromUci(String uci) {
+        return Notation.fromUci(this, board, uci);
+    }
+
+    /**
+     * A position which occurred before can be treated as a draw while searching, since whatever was played from it
+     * the first time can be repeated.
+     *
+     * @return if the position occurred before
+     */
+    public boolean isRepetition() {
+        return board.isRepeated(1);
+    }
+
     public State generateMoves() {
+        var event = new MoveGenerationEvent();
+        event.begin();
+        var state = generateState();
+        event.end();
+        if (event.shouldCommit()) {
+            event.moves = state.isTerminal() ? 0 : state.moves().size();
+            event.state = state.type().name();
+            event.commit();
+        }
+        return state;
+    }
+
+    private State generateState() {
+        var draw = drawByRule();
+        if (draw.isPresent()) {
+            return new State(draw.get(), List.of());
+        }
         var user = board.activePlayer;
-        board.activePlayer = user.previous();
-        var isKingChecked = isKingChecked(user);
-        board.activePlayer = user;
+        var isKingChecked = isActivePlayerChecked();
         var alliedPositions = getPiecePositions(user);
         var possibleMoves = possibleMoves(alliedPositions);
         var legalMoves = legalMoves(possibleMoves, user);
@@ -52,17 +183,53 @@ public final class Game {
             var terminalState = isKingChecked ? State.Type.CHECKMATE : State.Type.STALEMATE;
             return new State(terminalState, legalMoves);
         }
-        if (isTooManyMoves()) {
-            return new State(State.Type.DRAW_FIFTY_MOVE_RULE, List.of());
+        var regularState = isKingChecked ? State.Type.CHECK : State.Type.NORMAL;
+        return new State(regularState, legalMoves);
+    }
+
+    /**
+     * Determines if the game is over without generating the legal moves. The draws by rule are checked first since
+     * they only need counters kept by the board, and then the moves are only tried until a legal one is found.
+     *
+     * @return the terminal state, which has no moves, or empty if the game is not over
+     */
+    public Optional<State> terminalState() {
+        var draw = drawByRule();
+        if (draw.isPresent()) {
+            return Optional.of(new State(draw.get(), List.of()));
+        }
+        if (hasLegalMove()) {
+            return Optional.empty();
         }
+        var terminalState = isActivePlayerChecked() ? State.Type.CHECKMATE : State.Type.STALEMATE;
+        return Optional.of(new State(terminalState, List.of()));
+    }
+
+    // A checkmate on the last move before the fifty-move rule applies still wins the game
+    private Optional<State.Type> drawByRule() {
         if (isInsufficientMaterial()) {
-            return new State(State.Type.DRAW_INSUFFICIENT_MATING, List.of());
+            return Optional.of(State.Type.DRAW_INSUFFICIENT_MATING);
         }
         if (isTooManyRepetitions()) {
-            return new State(State.Type.DRAW_THREEFOLD_REPETITION, List.of());
+            return Optional.of(State.Type.DRAW_THREEFOLD_REPETITION);
         }
-        var regularState = isKingChecked ? State.Type.CHECK : State.Type.NORMAL;
-        return new State(regularState, legalMoves);
+        if (isTooManyMoves() && (!isActivePlayerChecked() || hasLegalMove())) {
+            return Optional.of(State.Type.DRAW_FIFTY_MOVE_RULE);
+        }
+        return Optional.empty();
+    }
+
+    private boolean hasLegalMove() {
+        var user = board.activePlayer;
+        for (var position : getPiecePositions(user)) {
+            var piece = board.squares[position.row][position.column];
+            for (var move : piece.type.possibleMoves(position, board)) {
+                if (isLegal(move, user)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private List<Position> getPiecePositions(Color player) {
@@ -71,7 +238,7 @@ public final class Game {
             for (int j = 0; j < Board.COLUMN_COUNT; j++) {
                 var piece = board.squares[i][j];
                 if (piece != null && piece.color == player) {
-                    positions.add(new Position(i, j));
+                    positions.add(Position.of(i, j));
                 }
             }
         }
@@ -87,33 +254,99 @@ public final class Game {
         return moves;
     }
 
-    private Position getKingPosition(List<Position> piecePositions) {
-        for (var position : piecePositions) {
-            var piece = board.get(position).orElseThrow();
-            if (piece.type == Piece.Type.KING) {
-                return position;
-            }
-        }
-        throw new IllegalStateException("No allied king");
-    }
-
     private List<Move> legalMoves(List<Move> possibleMoves, Color user) {
         var moves = new ArrayList<Move>();
         for (var move : possibleMoves) {
-            boolean hasNextMove = true;
-            boolean isLegal = true;
-            while (hasNextMove) {
-                hasNextMove = move.partial();
-                isLegal &= !isKingChecked(user);
-            }
-            move.undo();
-            if (isLegal) {
+            if (isLegal(move, user)) {
                 moves.add(move);
             }
         }
         return moves;
     }
 
+    // The king must not be checked on any of the squares that it passes through, which matters for castling
+    boolean isLegal(Move move, Color user) {
+        boolean hasNextMove = true;
+        boolean isLegal = true;
+        while (hasNextMove) {
+            hasNextMove = move.partial();
+            isLegal &= !isKingChecked(user);
+        }
+        move.undo();
+        return isLegal;
+    }
+
+    /**
+     * The player who just moved cannot have left their own king in check, so a position where they did could not
+     * have come up in a game. This matters to tools which set up positions without playing up to them.
+     *
+     * @return if the king of the player who is not to move is safe
+     */
+    public boolean isLegalPosition() {
+        return !isKingChecked(board.activePlayer.previous());
+    }
+
+    /**
+     * Determines if the king of the player to move is in check, without generating any moves for that player.
+     *
+     * @return if the player to move is in check
+     */
+    public boolean isActivePlayerChecked() {
+        return isKingChecked(board.activePlayer);
+    }
+
+    /**
+     * Tells from the squares alone, without performing the move, if it could check the opponent. It is true for every
+     * move which checks, but also for some which do not, such as a piece leaving a line to the king with nothing of its
+     * own behind it, so searches which only look at checks can leave out the other moves before performing any.
+     *
+     * @param move a legal move of the player to move
+     * @return false only if the move does not check
+     */
+    public boolean canCheck(Move move) {
+        var piece = board.squares[move.start.row][move.start.column];
+        var king = board.kingPosition(piece.color.next());
+        boolean isEnPassant = piece.type == Piece.Type.PAWN && move.start.column != move.end.column
+                && board.squares[move.end.row][move.end.column] == null;
+        // Castling moves the rook, and leaving a line to the king or taking en passant may uncover a check
+        if (move.isCastling() || isEnPassant || isLined(move.start, king)) {
+            return true;
+        }
+        var type = move.promotionPieceType().orElse(piece.type);
+        int rows = king.row - move.end.row;
+        int columns = king.column - move.end.column;
+        return switch (type) {
+            case PAWN -> rows == piece.color.pawnMove() && Math.abs(columns) == 1;
+            case KNIGHT -> Math.abs(rows * columns) == 2;
+            case BISHOP -> Math.abs(rows) == Math.abs(columns) && isClear(move.end, king);
+            case ROOK -> (rows == 0 || columns == 0) && isClear(move.end, king);
+            case QUEEN -> isLined(move.end, king) && isClear(move.end, king);
+            case KING -> false;
+        };
+    }
+
+    private static boolean isLined(Position first, Position second) {
+        int rows = second.row - first.row;
+        int columns = second.column - first.column;
+        return rows == 0 || columns == 0 || Math.abs(rows) == Math.abs(columns);
+    }
+
+    // The squares strictly between two squares on a line are empty
+    private boolean isClear(Position from, Position to) {
+        int rowStep = Integer.signum(to.row - from.row);
+        int columnStep = Integer.signum(to.column - from.column);
+        int row = from.row + rowStep;
+        int column = from.column + columnStep;
+        while (row != to.row || column != to.column) {
+            if (board.squares[row][column] != null) {
+                return false;
+            }
+            row += rowStep;
+            column += columnStep;
+        }
+        return true;
+    }
+
     /**
      * A draw due to too many moves occurs if both sides have moved 50 times each without pawn moves or piece captures.
      *
@@ -132,20 +365,15 @@ public final class Game {
      * @return if the game is a draw due to insufficient mating material
      */
     private boolean isInsufficientMaterial() {
-        boolean hasMinor = false;
-        for (var line : board.squares) {
-            for (var piece : line) {
-                if (piece == null || piece.type == Piece.Type.KING) {
-                    continue;
-                }
-                if (!hasMinor && (piece.type == Piece.Type.KNIGHT || piece.type == Piece.Type.BISHOP)) {
-                    hasMinor = true;
-                    continue;
-                }
+        int minors = 0;
+        for (var color : Color.values()) {
+            if (board.count(Piece.Type.PAWN, color) > 0 || board.count(Piece.Type.ROOK, color) > 0
+                    || board.count(Piece.Type.QUEEN, color) > 0) {
                 return false;
             }
+            minors += board.count(Piece.Type.KNIGHT, color) + board.count(Piece.Type.BISHOP, color);
         }
-        return true;
+        return minors <= 1;
     }
 
     /**
@@ -155,22 +383,10 @@ public final class Game {
      * @return if the game is a draw due to too many repetitions
      */
     private boolean isTooManyRepetitions() {
-        return board.repetitions.getOrDefault(board.zobrist.getHash(), 0) >= THREEFOLD_REPETITION_COUNT;
+        return board.isRepeated(THREEFOLD_REPETITION_COUNT - 1);
     }
 
     private boolean isKingChecked(Color user) {
-        var allies = getPiecePositions(user);
-        var alliedKing = getKingPosition(allies);
-        var enemies = getPiecePositions(user.next());
-        for (var enemyPosition : enemies) {
-            var enemyPiece = board.get(enemyPosition).orElseThrow();
-            var moves = enemyPiece.type.possibleMoves(enemyPosition, board);
-            for (var move : moves) {
-                if (move.end.equals(alliedKing)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return board.isAttacked(board.kingPosition(user), user.next());
     }
 }
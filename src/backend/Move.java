@@ -1,6 +1,5 @@
 package backend;
 
-import java.util.BitSet;
 import java.util.Optional;
 
 public abstract class Move {
@@ -10,8 +9,7 @@ public abstract class Move {
     final Board board;
 
     private Position oldEnPassantTarget;
-    private BitSet oldCanCastleShort;
-    private BitSet oldCanCastleLong;
+    private int oldCastlingRights;
     private boolean called;
     private int oldHalfMoveClock;
 
@@ -29,6 +27,24 @@ public abstract class Move {
 
     public abstract Optional<Piece.Type> promotionPieceType();
 
+    boolean isCastling() {
+        return false;
+    }
+
+    /**
+     * Encodes the move in long algebraic notation as used by UCI, such as e2e4, e1g1 for castling, or e7e8q.
+     *
+     * @return the move in long algebraic notation
+     */
+    public String toUci() {
+        var uci = start.toString() + end;
+        var promotion = promotionPieceType();
+        if (promotion.isEmpty()) {
+            return uci;
+        }
+        return uci + Character.toLowerCase(Notation.letter(promotion.get()));
+    }
+
     public void perform() {
         while (partial()) {
             // No loop body
@@ -39,12 +55,19 @@ public abstract class Move {
         if (!called) {
             called = true;
         }
+        board.pushHistory();
         oldHalfMoveClock = board.halfMoveClock;
         board.halfMoveClock++;
+        if (board.activePlayer == Color.BLACK) {
+            board.fullMoveNumber++;
+        }
         board.activePlayer = board.activePlayer.next();
         board.zobrist.togglePlayer();
-        oldCanCastleShort = (BitSet) board.shortCastleRights.clone();
-        oldCanCastleLong = (BitSet) board.longCastleRights.clone();
+        oldCastlingRights = board.castlingRights;
+        board.castlingRights &= Board.CASTLING_RIGHTS_KEPT[start.row][start.column]
+                & Board.CASTLING_RIGHTS_KEPT[end.row][end.column];
+        board.zobrist.toggleCastling(oldCastlingRights);
+        board.zobrist.toggleCastling(board.castlingRights);
         oldEnPassantTarget = board.enPassantTarget;
         board.enPassantTarget = null;
         board.zobrist.toggleEnPassant(oldEnPassantTarget);
@@ -55,45 +78,19 @@ public abstract class Move {
         if (!called) {
             throw new IllegalStateException("Cannot undo a move that has not been made");
         }
+        board.popHistory();
         board.halfMoveClock = oldHalfMoveClock;
         board.activePlayer = board.activePlayer.previous();
-        board.zobrist.resetShort(board.shortCastleRights, oldCanCastleShort);
-        board.zobrist.resetLong(board.longCastleRights, oldCanCastleLong);
+        if (board.activePlayer == Color.BLACK) {
+            board.fullMoveNumber--;
+        }
+        board.zobrist.toggleCastling(board.castlingRights);
+        board.zobrist.toggleCastling(oldCastlingRights);
         board.zobrist.togglePlayer();
         board.zobrist.toggleEnPassant(board.enPassantTarget);
         board.zobrist.toggleEnPassant(oldEnPassantTarget);
         board.enPassantTarget = oldEnPassantTarget;
-        board.shortCastleRights = oldCanCastleShort;
-        board.longCastleRights = oldCanCastleLong;
-    }
-
-    void addZobrist() {
-        board.repetitions.put(board.zobrist.getHash(), board.repetitions.getOrDefault(board.zobrist.getHash(), 0) + 1);
-    }
-
-    void removeZobrist() {
-        board.repetitions.put(board.zobrist.getHash(), board.repetitions.get(board.zobrist.getHash()) - 1);
-    }
-
-    void updateCastlingRights(Position position) {
-        var piece = board.get(position);
-        if (piece.isEmpty()) {
-            return;
-        }
-        if (piece.get().type != Piece.Type.ROOK) {
-            return;
-        }
-        var color = piece.get().color;
-        if (position.row != color.piecesRow()) {
-            return;
-        }
-        if (position.column == Board.COLUMN_COUNT - 1) {
-            board.zobrist.clearShort(color, board.shortCastleRights);
-            board.shortCastleRights.clear(color.bitIndex());
-        } else if (position.column == 0) {
-            board.zobrist.clearLong(color, board.longCastleRights);
-            board.longCastleRights.clear(color.bitIndex());
-        }
+        board.castlingRights = oldCastlingRights;
     }
 }
 
@@ -120,15 +117,15 @@ final class Castling extends Move {
         return Optional.empty();
     }
 
+    @Override
+    boolean isCastling() {
+        return true;
+    }
+
     @Override
     boolean partial() {
         if (state == State.NOT_STARTED) {
-            var player = board.activePlayer;
             super.partial();
-            board.zobrist.clearShort(player, board.shortCastleRights);
-            board.zobrist.clearLong(player, board.longCastleRights);
-            board.shortCastleRights.clear(player.bitIndex());
-            board.longCastleRights.clear(player.bitIndex());
             state = State.IN_PROGRESS;
             currentKingColumn = start.column;
             return true;
@@ -149,7 +146,6 @@ final class Castling extends Move {
             board.zobrist.togglePiece(board.squares, rookEnd.row, rookEnd.column);
             board.squares[rookStart.row][rookStart.column] = null;
             state = State.DONE;
-            addZobrist();
             return false;
         }
         throw new IllegalStateException("In an illegal move state");
@@ -160,7 +156,6 @@ final class Castling extends Move {
         if (state != State.DONE) {
             throw new IllegalStateException("Move not fully performed");
         }
-        removeZobrist();
         super.undo();
         state = State.NOT_STARTED;
         board.zobrist.togglePiece(board.squares, end.row, end.column);
@@ -193,7 +188,6 @@ final class PawnPromotion extends Move {
     boolean partial() {
         super.partial();
         board.halfMoveClock = 0;
-        updateCastlingRights(end);
         captured = board.squares[end.row][end.column];
         board.zobrist.togglePiece(board.squares, end.row, end.column);
         board.squares[end.row][end.column] = promotion;
@@ -201,19 +195,27 @@ final class PawnPromotion extends Move {
         original = board.squares[start.row][start.column];
         board.zobrist.togglePiece(board.squares, start.row, start.column);
         board.squares[start.row][start.column] = null;
-        addZobrist();
+        if (captured != null) {
+            board.pieceCounts[captured.index]--;
+        }
+        board.pieceCounts[original.index]--;
+        board.pieceCounts[promotion.index]++;
         return false;
     }
 
     @Override
     public void undo() {
-        removeZobrist();
         super.undo();
         board.squares[start.row][start.column] = original;
         board.zobrist.togglePiece(board.squares, start.row, start.column);
         board.zobrist.togglePiece(board.squares, end.row, end.column);
         board.squares[end.row][end.column] = captured;
         board.zobrist.togglePiece(board.squares, end.row, end.column);
+        if (captured != null) {
+            board.pieceCounts[captured.index]++;
+        }
+        board.pieceCounts[original.index]++;
+        board.pieceCounts[promotion.index]--;
     }
 }
 
@@ -240,15 +242,15 @@ final class EnPassant extends Move {
         board.zobrist.togglePiece(board.squares, end.row, end.column);
         board.squares[start.row][start.column] = null;
         captured = board.squares[pawnCapture.row][pawnCapture.column];
+        assert captured != null : "No pawn to capture en passant on " + pawnCapture;
         board.zobrist.togglePiece(board.squares, pawnCapture.row, pawnCapture.column);
         board.squares[pawnCapture.row][pawnCapture.column] = null;
-        addZobrist();
+        board.pieceCounts[captured.index]--;
         return false;
     }
 
     @Override
     public void undo() {
-        removeZobrist();
         super.undo();
         board.zobrist.togglePiece(board.squares, end.row, end.column);
         board.squares[start.row][start.column] = board.squares[end.row][end.column];
@@ -256,6 +258,7 @@ final class EnPassant extends Move {
         board.squares[end.row][end.column] = null;
         board.squares[pawnCapture.row][pawnCapture.column] = captured;
         board.zobrist.togglePiece(board.squares, pawnCapture.row, pawnCapture.column);
+        board.pieceCounts[captured.index]++;
     }
 }
 
@@ -274,11 +277,12 @@ class RegularMove extends Move {
     @Override
     boolean partial() {
         super.partial();
-        updateCastlingRights(start);
-        updateCastlingRights(end);
         captured = board.squares[end.row][end.column];
         if (captured != null) {
             board.halfMoveClock = 0;
+            board.pieceCounts[captured.index]--;
+        } else if (board.squares[start.row][start.column].type == Piece.Type.PAWN) {
+            board.halfMoveClock = 0;
         }
         board.zobrist.togglePiece(board.squares, end.row, end.column);
         board.zobrist.togglePiece(board.squares, start.row, start.column);
@@ -296,6 +300,9 @@ class RegularMove extends Move {
         board.zobrist.togglePiece(board.squares, start.row, start.column);
         board.squares[end.row][end.column] = captured;
         board.zobrist.togglePiece(board.squares, end.row, end.column);
+        if (captured != null) {
+            board.pieceCounts[captured.index]++;
+        }
     }
 }
 
@@ -310,40 +317,8 @@ final class PawnJump extends RegularMove {
     @Override
     boolean partial() {
         super.partial();
-        board.halfMoveClock = 0;
         board.enPassantTarget = jumpingOver;
         board.zobrist.toggleEnPassant(board.enPassantTarget);
-        addZobrist();
-        return false;
-    }
-
-    @Override
-    public void undo() {
-        removeZobrist();
-        super.undo();
-    }
-}
-
-final class KingMove extends RegularMove {
-    KingMove(Board board, Position start, Position end) {
-        super(board, start, end);
-    }
-
-    @Override
-    boolean partial() {
-        var player = board.activePlayer;
-        super.partial();
-        board.zobrist.clearShort(player, board.shortCastleRights);
-        board.zobrist.clearLong(player, board.longCastleRights);
-        board.shortCastleRights.clear(player.bitIndex());
-        board.longCastleRights.clear(player.bitIndex());
-        addZobrist();
         return false;
     }
-
-    @Override
-    public void undo() {
-        removeZobrist();
-        super.undo();
-    }
 }
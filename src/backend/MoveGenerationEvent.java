@@ -0,0 +1,25 @@
+package backend;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Flight Recorder for every generation of the legal moves. Searches generate moves hundreds of thousands
+ * of times a second, so the event is disabled unless a recording's settings enable it.
+ */
+@Name("ajedrez.MoveGeneration")
+@Label("Move Generation")
+@Category({"Ajedrez", "Moves"})
+@Description("The generation of every legal move of a position")
+@Enabled(false)
+final class MoveGenerationEvent extends Event {
+    @Label("Moves")
+    int moves;
+
+    @Label("State")
+    String state;
+}
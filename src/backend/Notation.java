@@ -0,0 +1,257 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class Notation {
+    private static final String SHORT_CASTLE = "O-O";
+    private static final String LONG_CASTLE = "O-O-O";
+
+    private Notation() {
+    }
+
+    static char letter(Piece.Type type) {
+        return switch (type) {
+            case PAWN -> 'P';
+            case KNIGHT -> 'N';
+            case BISHOP -> 'B';
+            case ROOK -> 'R';
+            case QUEEN -> 'Q';
+            case KING -> 'K';
+        };
+    }
+
+    private static Piece.Type type(char letter) {
+        return switch (Character.toUpperCase(letter)) {
+            case 'N' -> Piece.Type.KNIGHT;
+            case 'B' -> Piece.Type.BISHOP;
+            case 'R' -> Piece.Type.ROOK;
+            case 'Q' -> Piece.Type.QUEEN;
+            case 'K' -> Piece.Type.KING;
+            default -> throw new IllegalArgumentException("The move is malformed: invalid piece letter " + letter);
+        };
+    }
+
+    static String toSan(Game game, Board board, Move move) {
+        var san = new StringBuilder();
+        var piece = board.squares[move.start.row][move.start.column];
+        if (move.isCastling()) {
+            san.append(move.end.column > move.start.column ? SHORT_CASTLE : LONG_CASTLE);
+        } else if (piece.type == Piece.Type.PAWN) {
+            if (move.start.column != move.end.column) {
+                san.append(move.start.toString().charAt(0)).append('x');
+            }
+            san.append(move.end);
+            move.promotionPieceType().ifPresent(type -> san.append('=').append(letter(type)));
+        } else {
+            san.append(letter(piece.type));
+            appendDisambiguation(san, game, board, move, piece.type);
+            if (board.squares[move.end.row][move.end.column] != null) {
+                san.append('x');
+            }
+            san.append(move.end);
+        }
+        move.perform();
+        if (game.isActivePlayerChecked()) {
+            var state = game.generateMoves();
+            san.append(state.isTerminal() && state.isCheckmate() ? '#' : '+');
+        }
+        move.undo();
+        return san.toString();
+    }
+
+    /**
+     * Adds the file of the moving piece if it tells it apart from the other pieces of the same type which can legally
+     * move to the same square, otherwise its rank if that does, otherwise both.
+     */
+    private static void appendDisambiguation(StringBuilder san, Game game, Board board, Move move, Piece.Type type) {
+        boolean isAmbiguous = false;
+        boolean isSameColumn = false;
+        boolean isSameRow = false;
+        for (var other : candidates(game, board, type, move.end, null)) {
+            if (other.start.equals(move.start)) {
+                continue;
+            }
+            isAmbiguous = true;
+            isSameColumn |= other.start.column == move.start.column;
+            isSameRow |= other.start.row == move.start.row;
+        }
+        if (!isAmbiguous) {
+            return;
+        }
+        var start = move.start.toString();
+        if (!isSameColumn) {
+            san.append(start.charAt(0));
+        } else if (!isSameRow) {
+            san.append(start.charAt(1));
+        } else {
+            san.append(start);
+        }
+    }
+
+    static Move fromSan(Game game, Board board, String san) {
+        int length = san.length();
+        while (length > 0 && "+#!?".indexOf(san.charAt(length - 1)) >= 0) {
+            length--;
+        }
+        var notation = san.substring(0, length).replace('0', 'O');
+        if (notation.equals(SHORT_CASTLE) || notation.equals(LONG_CASTLE)) {
+            return castling(game, board, notation.equals(SHORT_CASTLE), san);
+        }
+        var type = Piece.Type.PAWN;
+        int start = 0;
+        if (length > 0 && Character.isUpperCase(san.charAt(0))) {
+            type = type(san.charAt(0));
+            start = 1;
+        }
+        Piece.Type promotion = null;
+        if (length >= 2 && Character.isUpperCase(san.charAt(length - 1))) {
+            promotion = type(san.charAt(length - 1));
+            length -= (san.charAt(length - 2) == '=') ? 2 : 1;
+        }
+        if (length - start < 2) {
+            throw new IllegalArgumentException("The move is malformed: " + san);
+        }
+        var end = square(san, length - 2);
+        int startColumn = -1;
+        int startRow = -1;
+        for (int i = start; i < length - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c < 'a' + Board.COLUMN_COUNT) {
+                startColumn = c - 'a';
+            } else if (c >= '1' && c < '1' + Board.ROW_COUNT) {
+                startRow = Board.ROW_COUNT - (c - '0');
+            } else if (c != 'x') {
+                throw new IllegalArgumentException("The move is malformed: " + san);
+            }
+        }
+        Move found = null;
+        for (var move : candidates(game, board, type, end, promotion)) {
+            if (startColumn >= 0 && move.start.column != startColumn) {
+                continue;
+            }
+            if (startRow >= 0 && move.start.row != startRow) {
+                continue;
+            }
+            if (found != null) {
+                throw new IllegalArgumentException("The move is ambiguous: " + san);
+            }
+            found = move;
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("The move is illegal: " + san);
+        }
+        return found;
+    }
+
+    private static Move castling(Game game, Board board, boolean isShort, String san) {
+        var player = board.activePlayer;
+        var king = Position.of(player.piecesRow(), Board.COLUMN_COUNT / 2);
+        var piece = board.get(king);
+        if (piece.isPresent() && piece.get().type == Piece.Type.KING && piece.get().color == player) {
+            for (var move : piece.get().type.possibleMoves(king, board)) {
+                boolean isSameSide = (move.end.column > move.start.column) == isShort;
+                if (move.isCastling() && isSameSide && game.isLegal(move, player)) {
+                    return move;
+                }
+            }
+        }
+        throw new IllegalArgumentException("The move is illegal: " + san);
+    }
+
+    static Move fromUci(Game game, Board board, String uci) {
+        if (uci.length() != 4 && uci.length() != 5) {
+            throw new IllegalArgumentException("The move is malformed: " + uci);
+        }
+        var start = square(uci, 0);
+        var end = square(uci, 2);
+        var promotion = (uci.length() == 5) ? type(uci.charAt(4)) : null;
+        var piece = board.squares[start.row][start.column];
+        if (piece != null && piece.color == board.activePlayer) {
+            for (var move : piece.type.possibleMoves(start, board)) {
+                if (isMatch(move, end, promotion) && game.isLegal(move, board.activePlayer)) {
+                    return move;
+                }
+            }
+        }
+        throw new IllegalArgumentException("The move is illegal: " + uci);
+    }
+
+    private static Position square(String text, int index) {
+        int column = text.charAt(index) - 'a';
+        int rank = text.charAt(index + 1) - '0';
+        if (column < 0 || column >= Board.COLUMN_COUNT || rank < 1 || rank > Board.ROW_COUNT) {
+            throw new IllegalArgumentException("The move is malformed: invalid square in " + text);
+        }
+        return Position.of(Board.ROW_COUNT - rank, column);
+    }
+
+    private static boolean isMatch(Move move, Position end, Piece.Type promotion) {
+        return move.end.equals(end) && move.promotionPieceType().orElse(null) == promotion;
+    }
+
+    /**
+     * Finds the legal moves of the given piece type to the given square, by only looking at the squares from which a
+     * piece of that type could attack or advance to the square.
+     */
+    private static List<Move> candidates(Game game, Board board, Piece.Type type, Position end,
+                                         Piece.Type promotion) {
+        var player = board.activePlayer;
+        var origins = new ArrayList<Position>();
+        switch (type) {
+            case PAWN -> {
+                int back = -player.pawnMove();
+                addOrigin(origins, end.row + back, end.column);
+                addOrigin(origins, end.row + 2 * back, end.column);
+                addOrigin(origins, end.row + back, end.column - 1);
+                addOrigin(origins, end.row + back, end.column + 1);
+            }
+            case KNIGHT -> addSteps(origins, end, Piece.KNIGHT_JUMPS);
+            case KING -> addSteps(origins, end, Piece.KING_STEPS);
+            case BISHOP -> addRays(origins, board, end, Piece.DIAGONALS);
+            case ROOK -> addRays(origins, board, end, Piece.STRAIGHTS);
+            case QUEEN -> {
+                addRays(origins, board, end, Piece.DIAGONALS);
+                addRays(origins, board, end, Piece.STRAIGHTS);
+            }
+        }
+        var moves = new ArrayList<Move>();
+        for (var origin : origins) {
+            var piece = board.get(origin);
+            if (piece.isEmpty() || piece.get().type != type || piece.get().color != player) {
+                continue;
+            }
+            for (var move : type.possibleMoves(origin, board)) {
+                if (isMatch(move, end, promotion) && !move.isCastling() && game.isLegal(move, player)) {
+                    moves.add(move);
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static void addOrigin(List<Position> origins, int row, int column) {
+        if (Position.isSquare(row, column)) {
+            origins.add(Position.of(row, column));
+        }
+    }
+
+    private static void addSteps(List<Position> origins, Position end, int[][] steps) {
+        for (var step : steps) {
+            addOrigin(origins, end.row + step[0], end.column + step[1]);
+        }
+    }
+
+    // Only the first occupied square in each direction can hold a piece which slides to the square
+    private static void addRays(List<Position> origins, Board board, Position end, int[][] directions) {
+        for (var direction : directions) {
+            int row = end.row + direction[0];
+            int column = end.column + direction[1];
+            while (board.isFree(row, column)) {
+                row += direction[0];
+                column += direction[1];
+            }
+            addOrigin(origins, row, column);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package backend;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes positions in SIZE bytes, for storing many of them such as training data. Neither encoding nor decoding goes
+ * through a string. The layout is big-endian:
+ * <ol>
+ * <li>a long with a bit set for each occupied square, with a8 as the lowest bit, then b8, and so on to h1</li>
+ * <li>sixteen bytes holding the piece of each occupied square in the same order, four bits each with the lower four
+ * bits of a byte first, coded as the color's bit index times six plus the type's ordinal</li>
+ * <li>a byte with the active player's bit index in its lowest bit and the castling rights in the four bits above</li>
+ * <li>a byte with the column of the en passant target plus one, or zero if there is none</li>
+ * <li>a byte with the half move clock</li>
+ * <li>a byte which is always zero</li>
+ * <li>an int with the full move number</li>
+ * </ol>
+ * Only positions with at most MAX_PIECES pieces can be encoded, which is every position reachable in a game.
+ */
+public final class PackedPosition {
+    public static final int SIZE = 32;
+    public static final int MAX_PIECES = 32;
+    private static final int PIECE_BYTES = MAX_PIECES / 2;
+    private static final int CODE_BITS = 4;
+    private static final int CODE_MASK = (1 << CODE_BITS) - 1;
+    private static final Piece.Type[] TYPES = Piece.Type.values();
+    private static final Color[] COLORS = Color.values();
+    private static final int CODE_COUNT = COLORS.length * TYPES.length;
+    private static final int CASTLING_SHIFT = 1;
+
+    private PackedPosition() {
+    }
+
+    /**
+     * Writes the position at the buffer's position, which is then advanced by SIZE bytes. The repetition history is
+     * not kept.
+     *
+     * @param game   the position to encode
+     * @param buffer the buffer to write to, which must have SIZE bytes remaining
+     * @throws IllegalArgumentException if the position has more than MAX_PIECES pieces
+     */
+    public static void encode(Game game, ByteBuffer buffer) {
+        var board = game.board;
+        int start = buffer.position();
+        long occupancy = 0;
+        int count = 0;
+        for (int i = 0; i < Board.ROW_COUNT; i++) {
+            for (int j = 0; j < Board.COLUMN_COUNT; j++) {
+                if (board.squares[i][j] != null) {
+                    occupancy |= 1L << (i * Board.COLUMN_COUNT + j);
+                    count++;
+                }
+            }
+        }
+        if (count > MAX_PIECES) {
+            throw new IllegalArgumentException("The position has more than " + MAX_PIECES + " pieces");
+        }
+        buffer.putLong(occupancy);
+        int code = 0;
+        int coded = 0;
+        for (int i = 0; i < Board.ROW_COUNT; i++) {
+            for (int j = 0; j < Board.COLUMN_COUNT; j++) {
+                var piece = board.squares[i][j];
+                if (piece == null) {
+                    continue;
+                }
+                code |= code(piece) << (CODE_BITS * (coded % 2));
+                coded++;
+                if (coded % 2 == 0) {
+                    buffer.put((byte) code);
+                    code = 0;
+                }
+            }
+        }
+        if (coded % 2 != 0) {
+            buffer.put((byte) code);
+            coded++;
+        }
+        for (int i = coded / 2; i < PIECE_BYTES; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put((byte) (board.activePlayer.bitIndex() | board.castlingRights << CASTLING_SHIFT));
+        buffer.put((byte) (board.enPassantTarget == null ? 0 : board.enPassantTarget.column + 1));
+        buffer.put((byte) board.halfMoveClock);
+        buffer.put((byte) 0);
+        buffer.putInt(board.fullMoveNumber);
+        assert buffer.position() - start == SIZE;
+    }
+
+    /**
+     * Reads a position from the buffer's position, which is then advanced by SIZE bytes.
+     *
+     * @param buffer the buffer to read from, which must have SIZE bytes remaining
+     * @return the position, without any repetition history
+     * @throws IllegalArgumentException if the bytes are not a position
+     */
+    public static Game decode(ByteBuffer buffer) {
+        var board = new Board();
+        long occupancy = buffer.getLong();
+        if (Long.bitCount(occupancy) > MAX_PIECES) {
+            throw new IllegalArgumentException("The packed position is malformed: more than " + MAX_PIECES + " pieces");
+        }
+        int code = 0;
+        int decoded = 0;
+        for (int square = 0; square < Board.SQUARE_COUNT; square++) {
+            if ((occupancy & 1L << square) == 0) {
+                continue;
+            }
+            if (decoded % 2 == 0) {
+                code = buffer.get();
+            }
+            int pieceCode = code >> (CODE_BITS * (decoded % 2)) & CODE_MASK;
+            if (pieceCode >= CODE_COUNT) {
+                throw new IllegalArgumentException("The packed position is malformed: invalid piece code");
+            }
+            var piece = Piece.of(TYPES[pieceCode % TYPES.length], COLORS[pieceCode / TYPES.length]);
+            board.squares[square / Board.COLUMN_COUNT][square % Board.COLUMN_COUNT] = piece;
+            board.pieceCounts[piece.index]++;
+            decoded++;
+        }
+        buffer.position(buffer.position() + PIECE_BYTES - (decoded + 1) / 2);
+        int flags = buffer.get();
+        board.activePlayer = COLORS[flags & 1];
+        board.castlingRights = flags >> CASTLING_SHIFT & (Board.CASTLING_RIGHTS_COMBINATIONS - 1);
+        int enPassantColumn = buffer.get();
+        if (enPassantColumn < 0 || enPassantColumn > Board.COLUMN_COUNT) {
+            throw new IllegalArgumentException("The packed position is malformed: invalid en passant target column");
+        }
+        if (enPassantColumn > 0) {
+            var jumped = board.activePlayer.next();
+            board.enPassantTarget = Position.of(jumped.pawnsRow() + jumped.pawnMove(), enPassantColumn - 1);
+        }
+        board.halfMoveClock = buffer.get();
+        if (board.halfMoveClock < 0 || board.halfMoveClock > Game.FIFTY_MOVE_RULE_PLY_COUNT) {
+            throw new IllegalArgumentException("The packed position is malformed: invalid half move clock");
+        }
+        buffer.get();
+        board.fullMoveNumber = buffer.getInt();
+        if (board.fullMoveNumber < 1) {
+            throw new IllegalArgumentException("The packed position is malformed: invalid full move number");
+        }
+        board.finishSetUp("packed position");
+        return new Game(board);
+    }
+
+    private static int code(Piece piece) {
+        return piece.color.bitIndex() * TYPES.length + piece.type.ordinal();
+    }
+}
@@ -6,6 +6,23 @@ import java.util.Optional;
 
 public final class Piece {
     private static final int CASTLING_KING_JUMP = 2;
+    static final int[][] KNIGHT_JUMPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    static final int[][] DIAGONALS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    static final int[][] STRAIGHTS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final Type[] PROMOTABLE_TYPES = {Type.KNIGHT, Type.BISHOP, Type.ROOK, Type.QUEEN};
+    private static final int TYPE_COUNT = Type.values().length;
+    static final int COUNT = TYPE_COUNT * Color.values().length;
+    private static final Piece[] PIECES = new Piece[COUNT];
+
+    static {
+        for (var color : Color.values()) {
+            for (var type : Type.values()) {
+                var piece = new Piece(type, color);
+                PIECES[piece.index] = piece;
+            }
+        }
+    }
 
     public enum Type {
         PAWN {
@@ -25,37 +42,28 @@ public final class Piece {
 
             private List<Move> pawnPromotions(Position position, Board board, Piece piece) {
                 var moves = new ArrayList<Move>();
-                var advance = new Position(piece.color.endRow(), position.column);
-                var captureLeft = new Position(piece.color.endRow(), position.column - 1);
-                var captureRight = new Position(piece.color.endRow(), position.column + 1);
+                int endRow = piece.color.endRow();
+                var advance = Position.of(endRow, position.column);
                 if (board.get(advance).isEmpty()) {
-                    moves.addAll(pawnPromotions(position, advance, board));
+                    pawnPromotions(moves, position, advance, board);
                 }
-                var captures = new Position[]{captureLeft, captureRight};
-                for (var capture : captures) {
-                    if (board.get(capture).isEmpty()) {
-                        continue;
-                    }
-                    var capturePiece = board.get(capture).get();
-                    if (capturePiece.color != board.activePlayer) {
-                        moves.addAll(pawnPromotions(position, capture, board));
+                for (int column = position.column - 1; column <= position.column + 1; column += 2) {
+                    if (board.isEnemy(endRow, column)) {
+                        pawnPromotions(moves, position, Position.of(endRow, column), board);
                     }
                 }
                 return moves;
             }
 
-            private List<Move> pawnPromotions(Position start, Position end, Board board) {
-                var moves = new ArrayList<Move>();
-                var promotablePieces = new Type[]{KNIGHT, BISHOP, ROOK, QUEEN};
-                for (var promotable : promotablePieces) {
-                    moves.add(new PawnPromotion(board, start, end, new Piece(promotable, board.activePlayer)));
+            private void pawnPromotions(List<Move> moves, Position start, Position end, Board board) {
+                for (var promotable : PROMOTABLE_TYPES) {
+                    moves.add(new PawnPromotion(board, start, end, Piece.of(promotable, board.activePlayer)));
                 }
-                return moves;
             }
 
             private Optional<Move> pawnJump(Position start, Board board, Piece piece) {
-                var skip = new Position(start.row + piece.color.pawnMove(), start.column);
-                var end = new Position(skip.row + piece.color.pawnMove(), skip.column);
+                var skip = Position.of(start.row + piece.color.pawnMove(), start.column);
+                var end = Position.of(skip.row + piece.color.pawnMove(), skip.column);
                 if (board.get(skip).isEmpty() && board.get(end).isEmpty()) {
                     return Optional.of(new PawnJump(board, start, end, skip));
                 }
@@ -65,24 +73,23 @@ public final class Piece {
             private List<Move> otherMoves(Position position, Board board, Piece piece) {
                 var moves = new ArrayList<Move>();
                 var nextRow = position.row + piece.color.pawnMove();
-                var advance = new Position(nextRow, position.column);
-                var captureLeft = new Position(nextRow, position.column - 1);
-                var captureRight = new Position(nextRow, position.column + 1);
+                var advance = Position.of(nextRow, position.column);
                 if (board.get(advance).isEmpty()) {
                     moves.add(new RegularMove(board, position, advance));
                 }
-                var captures = new Position[]{captureLeft, captureRight};
-                for (var capture : captures) {
-                    if (board.get(capture).isEmpty()) {
-                        if (capture.equals(board.enPassantTarget)) {
-                            var pawnMove = board.activePlayer.previous().pawnMove();
-                            var capturePosition = new Position(capture.row + pawnMove, capture.column);
-                            moves.add(new EnPassant(board, position, board.enPassantTarget, capturePosition));
-                        }
+                for (int column = position.column - 1; column <= position.column + 1; column += 2) {
+                    if (!Position.isSquare(nextRow, column)) {
                         continue;
                     }
-                    var capturePiece = board.get(capture).get();
-                    if (capturePiece.color != board.activePlayer) {
+                    var capture = Position.of(nextRow, column);
+                    if (capture == board.enPassantTarget) {
+                        // Only a pawn which just jumped over the target can be captured, and the board checks for it
+                        var enemy = board.activePlayer.previous();
+                        var capturePosition = Position.of(capture.row + enemy.pawnMove(), capture.column);
+                        if (board.get(capturePosition).orElse(null) == Piece.of(Type.PAWN, enemy)) {
+                            moves.add(new EnPassant(board, position, board.enPassantTarget, capturePosition));
+                        }
+                    } else if (board.isEnemy(nextRow, column)) {
                         moves.add(new RegularMove(board, position, capture));
                     }
                 }
@@ -93,22 +100,8 @@ public final class Piece {
         KNIGHT {
             @Override
             List<Move> possibleMoves(Position start, Board board) {
-                var positions = new Position[]{
-                        new Position(start.row - 2, start.column - 1),
-                        new Position(start.row - 2, start.column + 1),
-                        new Position(start.row - 1, start.column - 2),
-                        new Position(start.row - 1, start.column + 2),
-                        new Position(start.row + 1, start.column - 2),
-                        new Position(start.row + 1, start.column + 2),
-                        new Position(start.row + 2, start.column - 1),
-                        new Position(start.row + 2, start.column + 1),
-                };
                 var moves = new ArrayList<Move>();
-                for (var end : positions) {
-                    if (board.isFree(end) || board.isEnemy(end)) {
-                        moves.add(new RegularMove(board, start, end));
-                    }
-                }
+                steps(moves, start, board, KNIGHT_JUMPS);
                 return moves;
             }
         },
@@ -140,35 +133,21 @@ public final class Piece {
         KING {
             @Override
             List<Move> possibleMoves(Position start, Board board) {
-                var positions = new Position[]{
-                        new Position(start.row - 1, start.column - 1),
-                        new Position(start.row - 1, start.column),
-                        new Position(start.row - 1, start.column + 1),
-                        new Position(start.row, start.column - 1),
-                        new Position(start.row, start.column + 1),
-                        new Position(start.row + 1, start.column - 1),
-                        new Position(start.row + 1, start.column),
-                        new Position(start.row + 1, start.column + 1),
-                };
                 var moves = new ArrayList<Move>();
-                for (var end : positions) {
-                    if (board.isFree(end) || board.isEnemy(end)) {
-                        moves.add(new KingMove(board, start, end));
-                    }
-                }
-                if (board.shortCastleRights.get(board.activePlayer.bitIndex())) {
-                    var rookStart = new Position(start.row, Board.COLUMN_COUNT - 1);
+                steps(moves, start, board, KING_STEPS);
+                if (board.canCastleShort(board.activePlayer)) {
+                    var rookStart = Position.of(start.row, Board.COLUMN_COUNT - 1);
                     if (hasClearPathExclusive(board, start.row, start.column, rookStart.column)) {
-                        var kingEnd = new Position(start.row, start.column + CASTLING_KING_JUMP);
-                        var rookEnd = new Position(start.row, kingEnd.column - 1);
+                        var kingEnd = Position.of(start.row, start.column + CASTLING_KING_JUMP);
+                        var rookEnd = Position.of(start.row, kingEnd.column - 1);
                         moves.add(new Castling(board, start, kingEnd, rookStart, rookEnd));
                     }
                 }
-                if (board.longCastleRights.get(board.activePlayer.bitIndex())) {
-                    var rookStart = new Position(start.row, 0);
+                if (board.canCastleLong(board.activePlayer)) {
+                    var rookStart = Position.of(start.row, 0);
                     if (hasClearPathExclusive(board, start.row, rookStart.column, start.column)) {
-                        var kingEnd = new Position(start.row, start.column - CASTLING_KING_JUMP);
-                        var rookEnd = new Position(start.row, kingEnd.column + 1);
+                        var kingEnd = Position.of(start.row, start.column - CASTLING_KING_JUMP);
+                        var rookEnd = Position.of(start.row, kingEnd.column + 1);
                         moves.add(new Castling(board, start, kingEnd, rookStart, rookEnd));
                     }
                 }
@@ -190,42 +169,64 @@ public final class Piece {
 
         private static List<Move> rookMoves(Position position, Board board) {
             var moves = new ArrayList<Move>();
-            moves.addAll(directionalMovement(position, board, 1, 0));
-            moves.addAll(directionalMovement(position, board, -1, 0));
-            moves.addAll(directionalMovement(position, board, 0, 1));
-            moves.addAll(directionalMovement(position, board, 0, -1));
+            for (var direction : STRAIGHTS) {
+                directionalMovement(moves, position, board, direction[0], direction[1]);
+            }
             return moves;
         }
 
         private static List<Move> bishopMoves(Position position, Board board) {
             var moves = new ArrayList<Move>();
-            moves.addAll(directionalMovement(position, board, -1, -1));
-            moves.addAll(directionalMovement(position, board, -1, 1));
-            moves.addAll(directionalMovement(position, board, 1, -1));
-            moves.addAll(directionalMovement(position, board, 1, 1));
+            for (var direction : DIAGONALS) {
+                directionalMovement(moves, position, board, direction[0], direction[1]);
+            }
             return moves;
         }
 
-        private static List<Move> directionalMovement(Position start, Board board, int row, int column) {
-            var moves = new ArrayList<Move>();
-            var position = new Position(start.row + row, start.column + column);
-            while (board.isFree(position)) {
-                moves.add(new RegularMove(board, start, position));
-                position = new Position(position.row + row, position.column + column);
+        private static void directionalMovement(List<Move> moves, Position start, Board board, int row, int column) {
+            int i = start.row + row;
+            int j = start.column + column;
+            while (board.isFree(i, j)) {
+                moves.add(new RegularMove(board, start, Position.of(i, j)));
+                i += row;
+                j += column;
             }
-            if (board.isEnemy(position)) {
-                moves.add(new RegularMove(board, start, position));
+            if (board.isEnemy(i, j)) {
+                moves.add(new RegularMove(board, start, Position.of(i, j)));
+            }
+        }
+
+        private static void steps(List<Move> moves, Position start, Board board, int[][] steps) {
+            for (var step : steps) {
+                int row = start.row + step[0];
+                int column = start.column + step[1];
+                if (board.isFree(row, column) || board.isEnemy(row, column)) {
+                    moves.add(new RegularMove(board, start, Position.of(row, column)));
+                }
             }
-            return moves;
         }
     }
 
     public final Type type;
     public final Color color;
+    // Where the piece is in the table of all pieces, used to index the tables kept per piece
+    final int index;
 
-    Piece(Type type, Color color) {
+    private Piece(Type type, Color color) {
         this.type = type;
         this.color = color;
+        index = color.ordinal() * TYPE_COUNT + type.ordinal();
+    }
+
+    /**
+     * There is only one piece per type and color, so that promoting does not create any.
+     *
+     * @param type  the type of the piece
+     * @param color the color of the piece
+     * @return the piece of that type and color
+     */
+    public static Piece of(Type type, Color color) {
+        return PIECES[color.ordinal() * TYPE_COUNT + type.ordinal()];
     }
 
     @Override
@@ -237,6 +238,6 @@ public final class Piece {
 
     @Override
     public int hashCode() {
-        return type.ordinal() * (color.ordinal() + 1);
+        return index;
     }
 }
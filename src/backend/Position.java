@@ -1,17 +1,52 @@
 package backend;
 
 public final class Position {
+    private static final Position[] POSITIONS = new Position[Board.SQUARE_COUNT];
+
+    static {
+        for (int i = 0; i < POSITIONS.length; i++) {
+            POSITIONS[i] = new Position(i / Board.COLUMN_COUNT, i % Board.COLUMN_COUNT);
+        }
+    }
+
     public final int row;
     public final int column;
+    // The square counted row by row from the top left, used to index the tables kept per square
+    final int index;
 
-    public Position(int row, int column) {
+    private Position(int row, int column) {
         this.row = row;
         this.column = column;
+        index = row * Board.COLUMN_COUNT + column;
+    }
+
+    /**
+     * There is only one position per square, so that generating moves does not create any.
+     *
+     * @param row    the row, where row zero is the eighth rank
+     * @param column the column, where column zero is the a-file
+     * @return the position of that square
+     * @throws IllegalArgumentException if the square is not on the board
+     */
+    public static Position of(int row, int column) {
+        if (!isSquare(row, column)) {
+            throw new IllegalArgumentException("The position is not on the board: " + row + ", " + column);
+        }
+        return POSITIONS[row * Board.COLUMN_COUNT + column];
+    }
+
+    static Position of(int index) {
+        return POSITIONS[index];
+    }
+
+    static boolean isSquare(int row, int column) {
+        return row >= 0 && row < Board.ROW_COUNT && column >= 0 && column < Board.COLUMN_COUNT;
     }
 
     @Override
     public String toString() {
-        return (char) (column + 'a') + "" + (row + 1);
+        // Row zero is the eighth rank, since the board is stored from black's side
+        return (char) (column + 'a') + "" + (Board.ROW_COUNT - row);
     }
 
     @Override
@@ -23,6 +58,6 @@ public final class Position {
 
     @Override
     public int hashCode() {
-        return row * Board.COLUMN_COUNT + column;
+        return index;
     }
 }
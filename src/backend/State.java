@@ -21,6 +21,10 @@ public final class State {
         this.moves = moves;
     }
 
+    Type type() {
+        return stateType;
+    }
+
     public boolean isTerminal() {
         return stateType != Type.CHECK && stateType != Type.NORMAL;
     }
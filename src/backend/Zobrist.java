@@ -1,31 +1,25 @@
 package backend;
 
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Random;
 
 final class Zobrist {
-    private static final Random generator = new Random();
+    // A fixed seed keeps the hashes the same from one run to the next, so that searches can be reproduced
+    private static final long SEED = 0x41_6A_65_64_72_65_7AL;
+    private static final Random generator = new Random(SEED);
     private static final long blackToMove = generator.nextLong();
-    private static final Map<Piece, long[][]> pieces = new HashMap<>();
-    private static final Map<Color, Long> shortCastleRights = new HashMap<>();
-    private static final Map<Color, Long> longCastleRights = new HashMap<>();
+    private static final long[][] pieces = new long[Piece.COUNT][Board.SQUARE_COUNT];
+    private static final long[] castlingRights = new long[Board.CASTLING_RIGHTS_COMBINATIONS];
     private static final long[] enPassantColumn = new long[Board.COLUMN_COUNT];
 
     static {
-        for (var color : Color.values()) {
-            for (var type : Piece.Type.values()) {
-                long[][] squares = new long[Board.ROW_COUNT][Board.COLUMN_COUNT];
-                for (int i = 0; i < squares.length; i++) {
-                    for (int j = 0; j < squares[i].length; j++) {
-                        squares[i][j] = generator.nextLong();
-                    }
-                }
-                pieces.put(new Piece(type, color), squares);
+        for (var squares : pieces) {
+            for (int i = 0; i < squares.length; i++) {
+                squares[i] = generator.nextLong();
             }
-            shortCastleRights.put(color, generator.nextLong());
-            longCastleRights.put(color, generator.nextLong());
+        }
+        // No castling rights at all hashes to zero, like white to move and no en passant target
+        for (int i = 1; i < castlingRights.length; i++) {
+            castlingRights[i] = generator.nextLong();
         }
         for (int i = 0; i < enPassantColumn.length; i++) {
             enPassantColumn[i] = generator.nextLong();
@@ -34,7 +28,7 @@ final class Zobrist {
 
     private long hash;
 
-    Zobrist(Color activePlayer, Piece[][] squares, BitSet shortCastle, BitSet longCastle, Position enPassant) {
+    Zobrist(Color activePlayer, Piece[][] squares, int castling, Position enPassant) {
         hash = (activePlayer == Color.WHITE) ? 0 : blackToMove;
         for (int i = 0; i < squares.length; i++) {
             for (int j = 0; j < squares[i].length; j++) {
@@ -42,22 +36,19 @@ final class Zobrist {
                 if (piece == null) {
                     continue;
                 }
-                hash ^= pieces.get(piece)[i][j];
-            }
-        }
-        for (var color : Color.values()) {
-            if (shortCastle.get(color.bitIndex())) {
-                hash ^= shortCastleRights.get(color);
-            }
-            if (longCastle.get(color.bitIndex())) {
-                hash ^= longCastleRights.get(color);
+                hash ^= pieces[piece.index][i * Board.COLUMN_COUNT + j];
             }
         }
+        hash ^= castlingRights[castling];
         if (enPassant != null) {
             hash ^= enPassantColumn[enPassant.column];
         }
     }
 
+    Zobrist(Zobrist other) {
+        hash = other.hash;
+    }
+
     long getHash() {
         return hash;
     }
@@ -71,41 +62,17 @@ final class Zobrist {
         if (piece == null) {
             return;
         }
-        hash ^= pieces.get(piece)[row][column];
+        hash ^= pieces[piece.index][row * Board.COLUMN_COUNT + column];
     }
 
     void toggleEnPassant(Position position) {
         if (position == null) {
             return;
         }
-        hash ^= enPassantColumn[position.row];
-    }
-
-    void clearShort(Color player, BitSet oldRights) {
-        if (oldRights.get(player.bitIndex())) {
-            hash ^= shortCastleRights.get(player);
-        }
+        hash ^= enPassantColumn[position.column];
     }
 
-    void clearLong(Color player, BitSet oldRights) {
-        if (oldRights.get(player.bitIndex())) {
-            hash ^= longCastleRights.get(player);
-        }
-    }
-
-    void resetShort(BitSet modified, BitSet copied) {
-        for (var color : Color.values()) {
-            if (modified.get(color.bitIndex()) != copied.get(color.bitIndex())) {
-                hash ^= shortCastleRights.get(color);
-            }
-        }
-    }
-
-    void resetLong(BitSet modified, BitSet copied) {
-        for (var color : Color.values()) {
-            if (modified.get(color.bitIndex()) != copied.get(color.bitIndex())) {
-                hash ^= longCastleRights.get(color);
-            }
-        }
+    void toggleCastling(int rights) {
+        hash ^= castlingRights[rights];
     }
 }
@@ -0,0 +1,156 @@
+package bot;
+
+import backend.Color;
+import backend.Game;
+import backend.Move;
+import backend.Piece;
+
+import java.util.Arrays;
+
+/**
+ * The hidden layer of a network for one search, from both players' sides of the board. The search pushes each move
+ * onto it before performing the move and pops it after undoing the move, and a push only adds and removes the
+ * features of the pieces the move takes off and puts on the board, which is a handful per move. Every ply keeps its
+ * own copy of the layer, so popping is only stepping back down the stack. The moves tried while generating legal
+ * moves never reach it, since only the search pushes.
+ */
+final class Accumulator {
+    private static final int ROW_COUNT = 8;
+    private static final int SQUARE_COUNT = ROW_COUNT * ROW_COUNT;
+    private static final int TYPE_COUNT = Piece.Type.values().length;
+    private static final int INITIAL_PLIES = 32;
+
+    private final Network network;
+    // Indexed by ply, and allocated the first time the search reaches the ply
+    private short[][] white = new short[INITIAL_PLIES][];
+    private short[][] black = new short[INITIAL_PLIES][];
+    private int ply;
+
+    Accumulator(Network network) {
+        this.network = network;
+    }
+
+    /**
+     * Computes the hidden layer of the position from scratch, as the bottom of the stack.
+     *
+     * @param game the position the search starts from
+     */
+    void refresh(Game game) {
+        ply = 0;
+        allocate(0);
+        System.arraycopy(network.hiddenBiases, 0, white[0], 0, network.hiddenSize);
+        System.arraycopy(network.hiddenBiases, 0, black[0], 0, network.hiddenSize);
+        for (int row = 0; row < ROW_COUNT; row++) {
+            for (int column = 0; column < ROW_COUNT; column++) {
+                var piece = game.getPiece(row, column);
+                if (piece != null) {
+                    apply(piece.type, piece.color, row, column, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the hidden layer for a move, which must be pushed before it is performed, since the pieces it moves and
+     * captures are read from the board.
+     *
+     * @param game the position the move is played in
+     * @param move the move, which is legal in the position
+     */
+    void push(Game game, Move move) {
+        allocate(ply + 1);
+        System.arraycopy(white[ply], 0, white[ply + 1], 0, network.hiddenSize);
+        System.arraycopy(black[ply], 0, black[ply + 1], 0, network.hiddenSize);
+        ply++;
+        var start = move.start;
+        var end = move.end;
+        var piece = game.getPiece(start.row, start.column);
+        var captured = game.getPiece(end.row, end.column);
+        apply(piece.type, piece.color, start.row, start.column, -1);
+        if (captured != null) {
+            apply(captured.type, captured.color, end.row, end.column, -1);
+        }
+        apply(move.promotionPieceType().orElse(piece.type), piece.color, end.row, end.column, 1);
+        int columns = end.column - start.column;
+        if (piece.type == Piece.Type.PAWN && columns != 0 && captured == null) {
+            // En passant takes the pawn beside the start square rather than one on the end square
+            apply(Piece.Type.PAWN, piece.color.next(), start.row, end.column, -1);
+        } else if (piece.type == Piece.Type.KING && Math.abs(columns) > 1) {
+            // Castling also moves the rook from its corner to the square the king passed over
+            int direction = Integer.signum(columns);
+            int rookColumn = (direction > 0) ? ROW_COUNT - 1 : 0;
+            apply(Piece.Type.ROOK, piece.color, start.row, rookColumn, -1);
+            apply(Piece.Type.ROOK, piece.color, start.row, end.column - direction, 1);
+        }
+    }
+
+    /**
+     * Steps back to the hidden layer from before the last move pushed, once that move has been undone.
+     */
+    void pop() {
+        ply--;
+    }
+
+    /**
+     * Evaluates the position at the top of the stack for the player to move.
+     *
+     * @param activePlayer the player to move
+     * @return the evaluation, in about a hundred per pawn
+     */
+    int evaluate(Color activePlayer) {
+        var us = (activePlayer == Color.WHITE) ? white[ply] : black[ply];
+        var them = (activePlayer == Color.WHITE) ? black[ply] : white[ply];
+        int hiddenSize = network.hiddenSize;
+        var weights = network.outputWeights;
+        long output = 0;
+        for (int i = 0; i < hiddenSize; i++) {
+            output += clippedRelu(us[i]) * weights[i];
+        }
+        for (int i = 0; i < hiddenSize; i++) {
+            output += clippedRelu(them[i]) * weights[hiddenSize + i];
+        }
+        output += network.outputBias;
+        return (int) (output * Network.EVALUATION_SCALE / (Network.HIDDEN_SCALE * Network.OUTPUT_SCALE));
+    }
+
+    private static int clippedRelu(short value) {
+        return Math.min(Math.max(value, 0), Network.HIDDEN_SCALE);
+    }
+
+    private void allocate(int index) {
+        if (index == white.length) {
+            white = Arrays.copyOf(white, 2 * white.length);
+            black = Arrays.copyOf(black, 2 * black.length);
+        }
+        if (white[index] == null) {
+            white[index] = new short[network.hiddenSize];
+            black[index] = new short[network.hiddenSize];
+        }
+    }
+
+    private void apply(Piece.Type type, Color color, int row, int column, int sign) {
+        int whiteFeature = feature(type, color, row, column);
+        int blackFeature = feature(type, color.next(), ROW_COUNT - 1 - row, column);
+        add(white[ply], whiteFeature, sign);
+        add(black[ply], blackFeature, sign);
+    }
+
+    private static int feature(Piece.Type type, Color color, int row, int column) {
+        return (color.ordinal() * TYPE_COUNT + type.ordinal()) * SQUARE_COUNT + row * ROW_COUNT + column;
+    }
+
+    // A plain loop over contiguous shorts, which the JIT compiles to vector instructions
+    private void add(short[] accumulator, int feature, int sign) {
+        var weights = network.hiddenWeights;
+        int start = feature * network.hiddenSize;
+        if (sign > 0) {
+            for (int i = 0; i < accumulator.length; i++) {
+                accumulator[i] += weights[start + i];
+            }
+        } else {
+            for (int i = 0; i < accumulator.length; i++) {
+                accumulator[i] -= weights[start + i];
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package bot;
+
+import backend.Move;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class Analysis {
+    public final Move move;
+    // The principal variation, starting with the move
+    public final List<Move> line;
+    public final int evaluation;
+    public final int depth;
+    public final long nodes;
+
+    Analysis(List<Move> line, int evaluation, int depth, long nodes) {
+        this.move = line.get(0);
+        this.line = List.copyOf(line);
+        this.evaluation = evaluation;
+        this.depth = depth;
+        this.nodes = nodes;
+    }
+
+    @Override
+    public String toString() {
+        var uci = line.stream().map(Move::toUci).collect(Collectors.joining(" "));
+        return uci + " = " + evaluation + " (depth " + depth + ", " + nodes + " nodes)";
+    }
+}
@@ -1,6 +1,8 @@
 package bot;
 
 import backend.*;
+import tablebase.Outcome;
+import tablebase.Tablebases;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -8,29 +10,51 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 
 public final class BotTurn {
     private static final int MAX_WAIT_SECONDS = 3;
-    private static final long NANO_SECONDS_PER_SECOND = 1_000_000_000;
-    private static final long MAX_NANO_WAIT = MAX_WAIT_SECONDS * NANO_SECONDS_PER_SECOND;
+    private static final SearchLimits DEFAULT_LIMITS = SearchLimits.time(MAX_WAIT_SECONDS * 1000L);
+    private static volatile OpeningBook openingBook;
+    private static volatile Tablebases endgameTables;
+    private static volatile SearchListener searchListener;
+    private static volatile Network evaluationNetwork;
+
     private final Game game;
+    private final SearchLimits limits;
+    private final SearchListener listener;
+    private final Tablebases tablebases;
+    private final Accumulator accumulator;
+    // The principal variation found below each ply, reused by every search at that ply
+    private final List<List<Move>> variations = new ArrayList<>();
+    private long nodes;
+    // Counted for the current iteration only
+    private long leafNodes;
+    private long transpositionProbes;
+    private long transpositionHits;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private int selectiveDepth;
 
     private static final class MoveQuality {
         private final Move move;
         private int evaluation;
+        // Moves which cannot be among the best lines are only searched far enough to show that
+        private boolean isExact;
+        private List<Move> line;
 
         private MoveQuality(Move move) {
             this.move = move;
             this.evaluation = Integer.MIN_VALUE;
+            this.line = List.of(move);
         }
 
         private int getEvaluation() {
             return evaluation;
         }
 
-        @Override
-        public String toString() {
-            return move + " = " + evaluation;
+        private boolean isExact() {
+            return isExact;
         }
     }
 
@@ -39,94 +63,335 @@ public final class BotTurn {
         if (state.isTerminal()) {
             return state;
         }
+        var settings = globalSettings();
+        var bookMove = (settings.book == null) ? Optional.<Move>empty() : settings.book.pick(game);
+        if (bookMove.isPresent()) {
+            bookMove.get().perform();
+            return state;
+        }
         var moves = state.moves();
-        var bot = new BotTurn(game);
-        var bestMove = bot.getBestMove(moves);
+        var bot = new BotTurn(game, DEFAULT_LIMITS, settings);
+        var bestMove = bot.getBestMoves(moves, 1).get(0).move;
         bestMove.perform();
         return state;
     }
 
-    private BotTurn(Game game) {
+    /**
+     * Makes the bot play a book move whenever the position is in the book, instead of searching. The book is shared
+     * by every game, and the previous book is not closed.
+     *
+     * @param book the opening book, or null to always search
+     */
+    public static void useOpeningBook(OpeningBook book) {
+        openingBook = book;
+    }
+
+    /**
+     * Makes the search look up positions in the endgame tables whenever it reaches material they cover, instead of
+     * searching them further. The tables are shared by every game, and the previous tables are not closed.
+     *
+     * @param tablebases the endgame tables, or null to always search
+     */
+    public static void useTablebases(Tablebases tablebases) {
+        endgameTables = tablebases;
+    }
+
+    /**
+     * Makes the search evaluate positions with the network rather than the hand-written evaluation. The network is
+     * shared by every game, and each search keeps its own hidden layer.
+     *
+     * @param network the network, or null to use the hand-written evaluation
+     */
+    public static void useNetwork(Network network) {
+        evaluationNetwork = network;
+    }
+
+    /**
+     * Reports every iteration of every search to the listener, such as to monitor the engine. Nothing is reported by
+     * default. The listener is shared by every game, including games searched at the same time.
+     *
+     * @param listener the listener, or null to report nothing
+     */
+    public static void useSearchListener(SearchListener listener) {
+        searchListener = listener;
+    }
+
+    /**
+     * Searches the position without performing any move, so that the caller decides what to do with the result.
+     *
+     * @param game   the position to search, which is restored before returning
+     * @param limits when to stop searching
+     * @return the best move found, or empty if the game is already over
+     */
+    public static Optional<Analysis> analyse(Game game, SearchLimits limits) {
+        return analyse(game, limits, 1).stream().findFirst();
+    }
+
+    /**
+     * Searches the position with the given settings instead of the ones set for every game, without performing any
+     * move. The book is not consulted, since a book move has no analysis.
+     *
+     * @param game     the position to search, which is restored before returning
+     * @param limits   when to stop searching
+     * @param settings the network and tables to search with
+     * @return the best move found, or empty if the game is already over
+     */
+    public static Optional<Analysis> analyse(Game game, SearchLimits limits, EngineSettings settings) {
+        return analyse(game, limits, 1, settings).stream().findFirst();
+    }
+
+    /**
+     * Searches the position for its best lines without performing any move. Moves which cannot be among the best
+     * lines are only searched until they are known to be worse than all of them, so every extra line costs some
+     * search time.
+     *
+     * @param game   the position to search, which is restored before returning
+     * @param limits when to stop searching
+     * @param lines  how many of the best moves to return, which is capped at the number of legal moves
+     * @return the best moves found, best first, or none if the game is already over
+     */
+    public static List<Analysis> analyse(Game game, SearchLimits limits, int lines) {
+        return analyse(game, limits, lines, globalSettings());
+    }
+
+    private static List<Analysis> analyse(Game game, SearchLimits limits, int lines, EngineSettings settings) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("Must search for at least one line");
+        }
+        var state = game.generateMoves();
+        if (state.isTerminal()) {
+            return List.of();
+        }
+        var bot = new BotTurn(game, limits, settings);
+        return bot.getBestMoves(state.moves(), Math.min(lines, state.moves().size()));
+    }
+
+    private static EngineSettings globalSettings() {
+        return new EngineSettings(evaluationNetwork, endgameTables, openingBook);
+    }
+
+    private BotTurn(Game game, SearchLimits limits, EngineSettings settings) {
         this.game = game;
+        this.tablebases = settings.tablebases;
+        this.listener = searchListener;
+        this.accumulator = (settings.network == null) ? null : new Accumulator(settings.network);
+        if (accumulator != null) {
+            accumulator.refresh(game);
+        }
+        this.limits = limits;
     }
 
-    private Move getBestMove(List<Move> moves) {
+    private List<Analysis> getBestMoves(List<Move> moves, int lines) {
         var choices = new ArrayList<MoveQuality>(moves.size());
         for (var move : moves) {
             choices.add(new MoveQuality(move));
         }
-        return getBestMoveChoice(choices);
+        return getBestMoveChoice(choices, lines);
     }
 
-    private Move getBestMoveChoice(List<MoveQuality> choices) {
-        System.out.println();
+    private List<Analysis> getBestMoveChoice(List<MoveQuality> choices, int lines) {
+        var searchEvent = new SearchEvent();
+        searchEvent.begin();
         var startTime = System.nanoTime();
-        for (int depth = 0; ; depth++) {
+        var best = analyses(choices, lines, 0);
+        for (int depth = 0; depth < limits.maxDepth; depth++) {
+            var iterationEvent = new SearchIterationEvent();
+            iterationEvent.begin();
             var transpositions = new HashMap<Long, Integer>();
-            boolean furtherDepth = getBestChoicesInPlace(choices, depth, startTime, transpositions);
+            long iterationStartTime = System.nanoTime();
+            long iterationStartNodes = nodes;
+            leafNodes = 0;
+            transpositionProbes = 0;
+            transpositionHits = 0;
+            betaCutoffs = 0;
+            firstMoveCutoffs = 0;
+            selectiveDepth = 0;
+            boolean furtherDepth = getBestChoicesInPlace(choices, lines, depth, startTime, transpositions);
+            if (furtherDepth) {
+                best = analyses(choices, lines, depth + 1);
+            }
+            iterationEvent.end();
+            if (iterationEvent.shouldCommit()) {
+                iterationEvent.depth = depth + 1;
+                iterationEvent.score = best.get(0).evaluation;
+                iterationEvent.nodes = nodes - iterationStartNodes;
+                iterationEvent.isComplete = furtherDepth;
+                iterationEvent.commit();
+            }
+            if (listener != null) {
+                var statistics = new SearchStatistics(depth + 1, nodes - iterationStartNodes, leafNodes,
+                        transpositionProbes, transpositionHits, betaCutoffs, firstMoveCutoffs, selectiveDepth,
+                        System.nanoTime() - iterationStartTime, furtherDepth);
+                listener.onIteration(statistics, best);
+            }
             if (!furtherDepth) {
                 break;
             }
         }
-        return choices.get(0).move;
+        searchEvent.end();
+        if (searchEvent.shouldCommit()) {
+            searchEvent.lines = lines;
+            searchEvent.depth = best.get(0).depth;
+            searchEvent.score = best.get(0).evaluation;
+            searchEvent.nodes = nodes;
+            searchEvent.bestMove = best.get(0).move.toUci();
+            searchEvent.commit();
+        }
+        return best;
+    }
+
+    private List<Analysis> analyses(List<MoveQuality> choices, int lines, int depth) {
+        var analyses = new ArrayList<Analysis>(lines);
+        for (var choice : choices.subList(0, lines)) {
+            analyses.add(new Analysis(choice.line, choice.evaluation, depth, nodes));
+        }
+        return analyses;
     }
 
-    private boolean getBestChoicesInPlace(List<MoveQuality> choices, int depth, long startTime,
+    /**
+     * Searches every root move one ply deeper. Once as many moves as there are lines have been searched, the worst of
+     * the best lines so far bounds the search of the moves after it, since they only need to be shown worse.
+     */
+    private boolean getBestChoicesInPlace(List<MoveQuality> choices, int lines, int depth, long startTime,
                                           Map<Long, Integer> transpositions) {
+        var bestEvaluations = new PriorityQueue<Integer>(lines + 1);
+        int alpha = -Integer.MAX_VALUE;
         for (var choice : choices) {
             var move = choice.move;
-            move.perform();
-            var evaluation = search(depth, startTime, -Integer.MAX_VALUE, Integer.MAX_VALUE, transpositions);
-            evaluation.ifPresent(eval -> choice.evaluation = -eval);
-            move.undo();
+            perform(move);
+            var evaluation = search(depth, 1, startTime, -Integer.MAX_VALUE, -alpha, transpositions);
+            undo(move);
             if (evaluation.isEmpty()) {
                 return false;
             }
+            choice.evaluation = -evaluation.get();
+            choice.isExact = alpha == -Integer.MAX_VALUE || choice.evaluation > alpha;
+            if (!choice.isExact) {
+                continue;
+            }
+            var line = new ArrayList<Move>();
+            line.add(move);
+            line.addAll(variation(1));
+            choice.line = line;
+            bestEvaluations.add(choice.evaluation);
+            if (bestEvaluations.size() > lines) {
+                bestEvaluations.remove();
+            }
+            if (bestEvaluations.size() == lines) {
+                alpha = bestEvaluations.peek();
+            }
         }
-        choices.sort(Comparator.comparing(MoveQuality::getEvaluation).reversed());
-        System.out.println("Searched to depth " + depth + ": " + choices);
+        choices.sort(Comparator.comparing(MoveQuality::getEvaluation).thenComparing(MoveQuality::isExact).reversed());
         return true;
     }
 
-    private Optional<Integer> search(int depth, long startTime, int alpha, int beta,
+    private List<Move> variation(int ply) {
+        while (variations.size() <= ply) {
+            variations.add(new ArrayList<>());
+        }
+        return variations.get(ply);
+    }
+
+    private Optional<Integer> search(int depth, int ply, long startTime, int alpha, int beta,
                                      Map<Long, Integer> transpositions) {
+        if (nodes >= limits.maxNodes) {
+            return Optional.empty();
+        }
+        nodes++;
+        selectiveDepth = Math.max(selectiveDepth, ply);
+        var variation = variation(ply);
+        variation.clear();
+        if (game.isRepetition()) {
+            return Optional.of(0);
+        }
+        if (tablebases != null) {
+            var outcome = tablebases.probe(game);
+            if (outcome.isPresent()) {
+                return Optional.of(evaluate(outcome.get()));
+            }
+        }
         var zobristHash = game.getZobristHash() + depth;
-        if (transpositions.containsKey(zobristHash)) {
-            return Optional.of(transpositions.get(zobristHash));
+        transpositionProbes++;
+        var transposition = transpositions.get(zobristHash);
+        if (transposition != null) {
+            transpositionHits++;
+            return Optional.of(transposition);
         }
         if (depth == 0) {
-            var value = evaluate();
+            leafNodes++;
+            var value = game.terminalState().map(BotTurn::evaluate).orElseGet(this::evaluate);
             transpositions.put(zobristHash, value);
             return Optional.of(value);
         }
-        if (System.nanoTime() - startTime > MAX_NANO_WAIT) {
+        if (System.nanoTime() - startTime > limits.maxNanos) {
             return Optional.empty();
         }
         var state = game.generateMoves();
         if (state.isTerminal()) {
-            return Optional.of(state.isCheckmate() ? -Integer.MAX_VALUE : 0);
+            return Optional.of(evaluate(state));
         }
         var moves = state.moves();
-        for (var move : moves) {
-            move.perform();
-            var evaluation = search(depth - 1, startTime, -beta, -alpha, transpositions);
-            move.undo();
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            perform(move);
+            var evaluation = search(depth - 1, ply + 1, startTime, -beta, -alpha, transpositions);
+            undo(move);
             if (evaluation.isPresent()) {
                 var eval = -evaluation.get();
                 if (eval >= beta) {
+                    betaCutoffs++;
+                    if (i == 0) {
+                        firstMoveCutoffs++;
+                    }
                     return Optional.of(beta);
                 }
-                alpha = Math.max(alpha, eval);
+                if (eval > alpha) {
+                    alpha = eval;
+                    variation.clear();
+                    variation.add(move);
+                    variation.addAll(variation(ply + 1));
+                }
             }
         }
         return Optional.of(alpha);
     }
 
+    // The network's hidden layer follows the moves of the search, and only those
+    private void perform(Move move) {
+        if (accumulator != null) {
+            accumulator.push(game, move);
+        }
+        move.perform();
+    }
+
+    private void undo(Move move) {
+        move.undo();
+        if (accumulator != null) {
+            accumulator.pop();
+        }
+    }
+
+    private static int evaluate(State terminalState) {
+        return terminalState.isCheckmate() ? -Integer.MAX_VALUE : 0;
+    }
+
+    // Being checkmated right away is the worst outcome, so every ply until a mate makes it a little better
+    private static int evaluate(Outcome outcome) {
+        return switch (outcome.result) {
+            case WIN -> Integer.MAX_VALUE - outcome.plies;
+            case DRAW -> 0;
+            case LOSS -> -Integer.MAX_VALUE + outcome.plies;
+        };
+    }
+
     private int evaluate() {
+        if (accumulator != null) {
+            return accumulator.evaluate(game.getActivePlayer());
+        }
         var squares = game.getBoard();
-        int totalValue = MaterialWorth.evaluate(squares);
-        boolean isLateGame = MaterialWorth.isLateGame;
-        totalValue += PieceSquareTables.evaluate(squares, isLateGame);
+        var material = MaterialWorth.totals(squares);
+        int totalValue = material.difference();
+        totalValue += PieceSquareTables.evaluate(squares, material.isLateGame());
         totalValue += CastleOpportunity.evaluate(game);
         return (game.getActivePlayer() == Color.WHITE) ? totalValue : -totalValue;
     }
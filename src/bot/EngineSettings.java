@@ -0,0 +1,20 @@
+package bot;
+
+import tablebase.Tablebases;
+
+/**
+ * What an engine plays with besides its search limits. Searches given settings use them rather than the network,
+ * tables, and book set for every game through BotTurn, so that engines set up differently can play each other in the
+ * same process. Any of them may be null, meaning the hand-written evaluation, no tables, or no book.
+ */
+public final class EngineSettings {
+    public final Network network;
+    public final Tablebases tablebases;
+    public final OpeningBook book;
+
+    public EngineSettings(Network network, Tablebases tablebases, OpeningBook book) {
+        this.network = network;
+        this.tablebases = tablebases;
+        this.book = book;
+    }
+}
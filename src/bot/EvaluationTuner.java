@@ -0,0 +1,226 @@
+package bot;
+
+import backend.Color;
+import backend.Piece;
+
+import java.util.stream.IntStream;
+
+/**
+ * Tunes the weights of the evaluation so that it predicts the results of labelled positions, by minimizing the mean
+ * squared error between each result and a sigmoid of the evaluation. The evaluation is linear in its weights, so the
+ * gradient is exact, and it is computed over every position on each step, split across the cores. Steps are taken
+ * with Adam, which copes with weights that are seen in very different numbers of positions.
+ * <p>
+ * The weights are the piece-square tables, the material values, and the castling bonus. Whether a position is late in
+ * the game is decided once when it is read, using the material values the engine has now.
+ */
+public final class EvaluationTuner {
+    private static final int SQUARE_COUNT = 64;
+    private static final int ROW_COUNT = 8;
+    private static final int TABLE_COUNT = 7;
+    private static final int EARLY_GAME_KING_TABLE = 5;
+    private static final int LATE_GAME_KING_TABLE = 6;
+    static final int MATERIAL = TABLE_COUNT * SQUARE_COUNT;
+    private static final int KING_MATERIAL = MATERIAL + EARLY_GAME_KING_TABLE;
+    static final int CASTLE = KING_MATERIAL + 1;
+    private static final int PARAMETER_COUNT = CASTLE + 1;
+
+    private static final int CHUNKS = 256;
+    private static final double LN_10 = Math.log(10);
+    private static final double BETA_1 = 0.9;
+    private static final double BETA_2 = 0.999;
+    private static final double EPSILON = 1e-8;
+    private static final double MIN_SCALE = 0.1;
+    private static final double MAX_SCALE = 10;
+    private static final double SCALE_TOLERANCE = 1e-4;
+
+    private final TuningSet positions;
+    private final double[] parameters = initialParameters();
+    private final double[] firstMoments = new double[PARAMETER_COUNT];
+    private final double[] secondMoments = new double[PARAMETER_COUNT];
+    private final double scale;
+    private int steps;
+
+    /**
+     * Starts tuning from the weights the engine has now, and fits how quickly the sigmoid turns an evaluation into
+     * an expected score, which stays fixed while tuning.
+     *
+     * @param positions the labelled positions
+     */
+    public EvaluationTuner(TuningSet positions) {
+        if (positions.size() == 0) {
+            throw new IllegalArgumentException("Must have positions to tune with");
+        }
+        this.positions = positions;
+        this.scale = fitScale();
+    }
+
+    // The index of the weight of a piece on a square, with the board flipped for black like PieceSquareTables
+    static int tableParameter(Piece.Type type, Color color, int row, int column, boolean isLateGame) {
+        int table = switch (type) {
+            case PAWN -> 0;
+            case KNIGHT -> 1;
+            case BISHOP -> 2;
+            case ROOK -> 3;
+            case QUEEN -> 4;
+            case KING -> isLateGame ? LATE_GAME_KING_TABLE : EARLY_GAME_KING_TABLE;
+        };
+        int flippedRow = (color == Color.WHITE) ? row : ROW_COUNT - 1 - row;
+        return table * SQUARE_COUNT + flippedRow * ROW_COUNT + column;
+    }
+
+    // Both king tables share a material value, which is always zero
+    static int materialParameter(int tableParameter) {
+        return MATERIAL + Math.min(tableParameter / SQUARE_COUNT, EARLY_GAME_KING_TABLE);
+    }
+
+    private static double[] initialParameters() {
+        var parameters = new double[PARAMETER_COUNT];
+        int[][][] tables = {PieceSquareTables.PAWN, PieceSquareTables.KNIGHT, PieceSquareTables.BISHOP,
+                PieceSquareTables.ROOK, PieceSquareTables.QUEEN, PieceSquareTables.EARLY_GAME_KING,
+                PieceSquareTables.LATE_GAME_KING};
+        for (int table = 0; table < TABLE_COUNT; table++) {
+            for (int row = 0; row < ROW_COUNT; row++) {
+                for (int column = 0; column < ROW_COUNT; column++) {
+                    parameters[table * SQUARE_COUNT + row * ROW_COUNT + column] = tables[table][row][column];
+                }
+            }
+        }
+        int[] material = {MaterialWorth.PAWN_VALUE, MaterialWorth.KNIGHT_VALUE, MaterialWorth.BISHOP_VALUE,
+                MaterialWorth.ROOK_VALUE, MaterialWorth.QUEEN_VALUE};
+        for (int i = 0; i < material.length; i++) {
+            parameters[MATERIAL + i] = material[i];
+        }
+        parameters[CASTLE] = CastleOpportunity.CASTLE_OPPORTUNITY_VALUE;
+        return parameters;
+    }
+
+    private static double sigmoid(double scale, double evaluation) {
+        return 1 / (1 + Math.pow(10, -scale * evaluation / 400));
+    }
+
+    public double scale() {
+        return scale;
+    }
+
+    /**
+     * Computes the mean squared error of the current weights over every position.
+     *
+     * @return the error
+     */
+    public double error() {
+        return error(scale);
+    }
+
+    private double error(double scale) {
+        int size = positions.size();
+        double sum = IntStream.range(0, size).parallel().mapToDouble(i -> {
+            double difference = positions.result(i) - sigmoid(scale, positions.evaluate(i, parameters));
+            return difference * difference;
+        }).sum();
+        return sum / size;
+    }
+
+    // Golden section search, since the error has a single minimum in the scale
+    private double fitScale() {
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = MIN_SCALE;
+        double high = MAX_SCALE;
+        while (high - low > SCALE_TOLERANCE) {
+            double first = high - ratio * (high - low);
+            double second = low + ratio * (high - low);
+            if (error(first) < error(second)) {
+                high = second;
+            } else {
+                low = first;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Takes one step down the gradient of the error over every position.
+     *
+     * @param learningRate the largest change to any weight, in centipawns
+     */
+    public void step(double learningRate) {
+        var gradient = gradient();
+        steps++;
+        double firstCorrection = 1 - Math.pow(BETA_1, steps);
+        double secondCorrection = 1 - Math.pow(BETA_2, steps);
+        for (int i = 0; i < PARAMETER_COUNT; i++) {
+            if (i == KING_MATERIAL) {
+                continue;
+            }
+            firstMoments[i] = BETA_1 * firstMoments[i] + (1 - BETA_1) * gradient[i];
+            secondMoments[i] = BETA_2 * secondMoments[i] + (1 - BETA_2) * gradient[i] * gradient[i];
+            double first = firstMoments[i] / firstCorrection;
+            double second = secondMoments[i] / secondCorrection;
+            parameters[i] -= learningRate * first / (Math.sqrt(second) + EPSILON);
+        }
+    }
+
+    private double[] gradient() {
+        int size = positions.size();
+        double derivative = scale * LN_10 / 400;
+        return IntStream.range(0, CHUNKS).parallel().mapToObj(chunk -> {
+            var gradient = new double[PARAMETER_COUNT];
+            for (int i = (int) ((long) size * chunk / CHUNKS); i < (long) size * (chunk + 1) / CHUNKS; i++) {
+                double expected = sigmoid(scale, positions.evaluate(i, parameters));
+                double factor = 2 * (expected - positions.result(i)) * expected * (1 - expected) * derivative / size;
+                positions.addGradient(i, factor, gradient);
+            }
+            return gradient;
+        }).reduce(new double[PARAMETER_COUNT], (first, second) -> {
+            var sum = new double[PARAMETER_COUNT];
+            for (int i = 0; i < PARAMETER_COUNT; i++) {
+                sum[i] = first[i] + second[i];
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Writes the weights as the Java constants they replace, rounded to whole centipawns.
+     *
+     * @return the source of the constants
+     */
+    public String toSource() {
+        var source = new StringBuilder();
+        source.append("// MaterialWorth\n");
+        String[] materialNames = {"PAWN_VALUE", "KNIGHT_VALUE", "BISHOP_VALUE", "ROOK_VALUE", "QUEEN_VALUE"};
+        for (int i = 0; i < materialNames.length; i++) {
+            source.append("static final int ").append(materialNames[i]).append(" = ")
+                    .append(Math.round(parameters[MATERIAL + i])).append(";\n");
+        }
+        source.append("\n// PieceSquareTables\n");
+        String[] tableNames = {"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "EARLY_GAME_KING", "LATE_GAME_KING"};
+        for (int table = 0; table < TABLE_COUNT; table++) {
+            appendTable(source, tableNames[table], table * SQUARE_COUNT);
+        }
+        source.append("// CastleOpportunity\n");
+        source.append("static final int CASTLE_OPPORTUNITY_VALUE = ").append(Math.round(parameters[CASTLE]))
+                .append(";\n");
+        return source.toString();
+    }
+
+    private void appendTable(StringBuilder source, String name, int start) {
+        int width = 1;
+        for (int i = start; i < start + SQUARE_COUNT; i++) {
+            width = Math.max(width, Long.toString(Math.round(parameters[i])).length());
+        }
+        source.append("static final int[][] ").append(name).append(" = new int[][]{\n");
+        for (int row = 0; row < ROW_COUNT; row++) {
+            source.append("        new int[]{");
+            for (int column = 0; column < ROW_COUNT; column++) {
+                if (column > 0) {
+                    source.append(", ");
+                }
+                var value = Long.toString(Math.round(parameters[start + row * ROW_COUNT + column]));
+                source.append(" ".repeat(width - value.length())).append(value);
+            }
+            source.append("},\n");
+        }
+        source.append("};\n\n");
+    }
+}
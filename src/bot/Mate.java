@@ -0,0 +1,33 @@
+package bot;
+
+import java.util.List;
+
+public final class Mate {
+    public enum Result {
+        MATE,
+        NO_MATE,
+        OUT_OF_NODES
+    }
+
+    public final Result result;
+    // The mating line in standard algebraic notation, with the defender's longest resistance, or empty if no mate
+    public final List<String> line;
+
+    Mate(Result result, List<String> line) {
+        this.result = result;
+        this.line = line;
+    }
+
+    public int moves() {
+        return (line.size() + 1) / 2;
+    }
+
+    @Override
+    public String toString() {
+        return switch (result) {
+            case MATE -> "mate in " + moves() + ": " + String.join(" ", line);
+            case NO_MATE -> "no mate";
+            case OUT_OF_NODES -> "out of nodes";
+        };
+    }
+}
@@ -0,0 +1,276 @@
+package bot;
+
+import backend.Game;
+import backend.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looks for a forced mate with proof-number search, rather than evaluating positions like BotTurn. Each node counts
+ * how many of the positions below it would still have to be proven to prove a mate, and how many would have to be
+ * disproven to rule one out, and the search always expands the position which is cheapest to settle. Mates of one
+ * move, then two, and so on are tried in turn, so the first mate found is the shortest. Each mate length carries on
+ * with the tree of the last one, opening up only the positions which were cut off for being too deep, so nothing
+ * already proven or disproven is searched again.
+ */
+public final class MateSearch {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private static final class Node {
+        private final Move move;
+        private Node[] children;
+        private int proof = 1;
+        private int disproof = 1;
+        // The defender's reply count if the position was disproven only for being too deep, or zero
+        private int cutOffReplies;
+
+        private Node(Move move) {
+            this.move = move;
+        }
+
+        private void prove() {
+            proof = 0;
+            disproof = INFINITY;
+        }
+
+        private void disprove() {
+            proof = INFINITY;
+            disproof = 0;
+        }
+    }
+
+    private final Game game;
+    private final int maxNodes;
+    private final boolean isChecksOnly;
+    // The attacker moves at even plies, and the last of its moves is played at the ply before this one
+    private int maxPlies;
+    private int nodes;
+
+    private MateSearch(Game game, int maxNodes, boolean isChecksOnly) {
+        this.game = game;
+        this.maxNodes = maxNodes;
+        this.isChecksOnly = isChecksOnly;
+    }
+
+    /**
+     * Finds the shortest forced mate for the player to move. The search keeps its tree in memory, so the node budget
+     * bounds the memory it uses, at roughly a hundred bytes per node.
+     *
+     * @param game         the position, which is restored before returning
+     * @param maxMoves     the longest mate to look for, in moves of the attacker
+     * @param maxNodes     how many positions the tree may hold
+     * @param isChecksOnly if the attacker may only play checking moves, which is much faster but misses mates that
+     *                     need a quiet move
+     * @return the mate, or why there is none
+     */
+    public static Mate find(Game game, int maxMoves, int maxNodes, boolean isChecksOnly) {
+        if (maxMoves < 1) {
+            throw new IllegalArgumentException("Must look for mates of at least one move");
+        }
+        var search = new MateSearch(game, maxNodes, isChecksOnly);
+        var root = new Node(null);
+        for (int moves = 1; moves <= maxMoves; moves++) {
+            search.maxPlies = 2 * moves - 1;
+            reopen(root, 0);
+            if (!search.search(root)) {
+                return new Mate(Mate.Result.OUT_OF_NODES, List.of());
+            }
+            if (root.proof == 0) {
+                return new Mate(Mate.Result.MATE, search.line(root));
+            }
+        }
+        return new Mate(Mate.Result.NO_MATE, List.of());
+    }
+
+    // The attacker is to move at even plies, where one mating move is enough, and the defender at odd plies
+    private static boolean isAttacker(int ply) {
+        return ply % 2 == 0;
+    }
+
+    // Gives the positions cut off at the last mate length their numbers back, and recomputes the numbers above them
+    private static void reopen(Node node, int ply) {
+        if (node.cutOffReplies > 0) {
+            node.proof = node.cutOffReplies;
+            node.disproof = 1;
+            node.cutOffReplies = 0;
+            return;
+        }
+        if (node.children == null || node.proof == 0) {
+            return;
+        }
+        for (var child : node.children) {
+            reopen(child, ply + 1);
+        }
+        update(node, ply);
+    }
+
+    private boolean search(Node root) {
+        var path = new ArrayList<Node>();
+        while (root.proof != 0 && root.disproof != 0) {
+            if (nodes >= maxNodes) {
+                return false;
+            }
+            path.clear();
+            path.add(root);
+            var node = root;
+            while (node.children != null) {
+                node = mostProving(node, path.size() - 1);
+                node.move.perform();
+                path.add(node);
+            }
+            expand(node, path.size() - 1);
+            for (int ply = path.size() - 1; ply > 0; ply--) {
+                update(path.get(ply), ply);
+                path.get(ply).move.undo();
+            }
+            update(root, 0);
+        }
+        return true;
+    }
+
+    private static Node mostProving(Node node, int ply) {
+        Node best = node.children[0];
+        for (var child : node.children) {
+            if (isAttacker(ply) ? child.proof < best.proof : child.disproof < best.disproof) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    private void expand(Node node, int ply) {
+        var state = game.generateMoves();
+        if (state.isTerminal()) {
+            node.children = new Node[0];
+            return;
+        }
+        var children = new ArrayList<Node>();
+        for (var move : state.moves()) {
+            if (isChecksOnly && isAttacker(ply) && !game.canCheck(move)) {
+                continue;
+            }
+            move.perform();
+            var child = new Node(move);
+            if (evaluate(child, ply + 1)) {
+                children.add(child);
+            }
+            move.undo();
+        }
+        nodes += children.size();
+        node.children = children.toArray(new Node[0]);
+    }
+
+    /**
+     * Sets the numbers of a new position. Positions where the defender has fewer replies are more likely to be
+     * mates, so the defender's reply count is used as the number of positions left to prove.
+     *
+     * @return if the position should be kept at all, which is not the case for quiet moves which got past the quick
+     * test for checks when only checks are searched
+     */
+    private boolean evaluate(Node child, int ply) {
+        if (!isAttacker(ply) && isChecksOnly && !game.isActivePlayerChecked()) {
+            return false;
+        }
+        if (game.isRepetition()) {
+            child.disprove();
+            return true;
+        }
+        if (isAttacker(ply)) {
+            var terminal = game.terminalState();
+            if (terminal.isPresent()) {
+                child.disprove();
+            }
+            return true;
+        }
+        var state = game.generateMoves();
+        if (state.isTerminal()) {
+            if (state.isCheckmate()) {
+                child.prove();
+            } else {
+                child.disprove();
+            }
+        } else if (ply >= maxPlies) {
+            child.disprove();
+            child.cutOffReplies = state.moves().size();
+        } else {
+            child.proof = state.moves().size();
+        }
+        return true;
+    }
+
+    private static void update(Node node, int ply) {
+        if (node.children == null) {
+            return;
+        }
+        if (isAttacker(ply)) {
+            node.proof = INFINITY;
+            node.disproof = 0;
+            for (var child : node.children) {
+                node.proof = Math.min(node.proof, child.proof);
+                node.disproof = add(node.disproof, child.disproof);
+            }
+        } else {
+            node.proof = 0;
+            node.disproof = INFINITY;
+            for (var child : node.children) {
+                node.proof = add(node.proof, child.proof);
+                node.disproof = Math.min(node.disproof, child.disproof);
+            }
+        }
+    }
+
+    private static int add(int first, int second) {
+        return (first >= INFINITY - second) ? INFINITY : first + second;
+    }
+
+    /**
+     * Walks the proof from the root, with the attacker taking its quickest mate and the defender putting it off for
+     * as long as it can.
+     */
+    private List<String> line(Node root) {
+        var line = new ArrayList<String>();
+        var played = new ArrayList<Move>();
+        var node = root;
+        int ply = 0;
+        while (node.children != null && node.children.length > 0) {
+            Node next = null;
+            int nextPlies = 0;
+            for (var child : node.children) {
+                if (child.proof != 0) {
+                    continue;
+                }
+                int plies = pliesToMate(child, ply + 1);
+                boolean isBetter = isAttacker(ply) ? plies < nextPlies : plies > nextPlies;
+                if (next == null || isBetter) {
+                    next = child;
+                    nextPlies = plies;
+                }
+            }
+            line.add(game.toSan(next.move));
+            next.move.perform();
+            played.add(next.move);
+            node = next;
+            ply++;
+        }
+        for (int i = played.size() - 1; i >= 0; i--) {
+            played.get(i).undo();
+        }
+        return line;
+    }
+
+    private static int pliesToMate(Node node, int ply) {
+        if (node.children == null || node.children.length == 0) {
+            return 0;
+        }
+        int plies = isAttacker(ply) ? INFINITY : 0;
+        for (var child : node.children) {
+            if (child.proof != 0) {
+                continue;
+            }
+            int childPlies = pliesToMate(child, ply + 1) + 1;
+            plies = isAttacker(ply) ? Math.min(plies, childPlies) : Math.max(plies, childPlies);
+        }
+        return plies;
+    }
+}
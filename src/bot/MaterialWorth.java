@@ -4,17 +4,29 @@ import backend.Color;
 import backend.Piece;
 
 final class MaterialWorth {
-    private static final int PAWN_VALUE = 100;
-    private static final int KNIGHT_VALUE = 320;
-    private static final int BISHOP_VALUE = 330;
-    private static final int ROOK_VALUE = 500;
-    private static final int QUEEN_VALUE = 900;
+    static final int PAWN_VALUE = 100;
+    static final int KNIGHT_VALUE = 320;
+    static final int BISHOP_VALUE = 330;
+    static final int ROOK_VALUE = 500;
+    static final int QUEEN_VALUE = 900;
 
     private static final int LATE_GAME_CUTOFF = 1500;
 
-    static Boolean isLateGame;
+    /**
+     * The material of each player, counted in a single pass over the board since the evaluation needs both the
+     * difference and whether the game is late.
+     */
+    record Totals(int white, int black) {
+        int difference() {
+            return white - black;
+        }
+
+        boolean isLateGame() {
+            return white < LATE_GAME_CUTOFF && black < LATE_GAME_CUTOFF;
+        }
+    }
 
-    static int evaluate(Piece[][] squares) {
+    static Totals totals(Piece[][] squares) {
         int whiteValue = 0;
         int blackValue = 0;
         for (var slice : squares) {
@@ -22,14 +34,7 @@ final class MaterialWorth {
                 if (piece == null) {
                     continue;
                 }
-                int value = 0;
-                switch (piece.type) {
-                    case PAWN -> value += PAWN_VALUE;
-                    case KNIGHT -> value += KNIGHT_VALUE;
-                    case BISHOP -> value += BISHOP_VALUE;
-                    case ROOK -> value += ROOK_VALUE;
-                    case QUEEN -> value += QUEEN_VALUE;
-                }
+                int value = value(piece.type);
                 if (piece.color == Color.WHITE) {
                     whiteValue += value;
                 } else {
@@ -37,7 +42,17 @@ final class MaterialWorth {
                 }
             }
         }
-        isLateGame = whiteValue < LATE_GAME_CUTOFF && blackValue < LATE_GAME_CUTOFF;
-        return whiteValue - blackValue;
+        return new Totals(whiteValue, blackValue);
+    }
+
+    private static int value(Piece.Type type) {
+        return switch (type) {
+            case PAWN -> PAWN_VALUE;
+            case KNIGHT -> KNIGHT_VALUE;
+            case BISHOP -> BISHOP_VALUE;
+            case ROOK -> ROOK_VALUE;
+            case QUEEN -> QUEEN_VALUE;
+            case KING -> 0;
+        };
     }
 }
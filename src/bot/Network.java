@@ -0,0 +1,98 @@
+package bot;
+
+import backend.Game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The weights of a small quantized neural network which evaluates positions. Its input is one feature per piece on
+ * each square, seen from each player's side of the board, and its one hidden layer is kept up to date by Accumulator
+ * as pieces move, so evaluating a position only needs the hidden layer's output.
+ * <p>
+ * A file holds, all big-endian: the int 0x414A4E4E, the int hidden size, then as shorts the hidden weights of each
+ * feature in turn, the hidden biases, and the output weights of the side to move's hidden layer followed by the other
+ * side's, and finally the output bias as an int. Features are numbered (color * 6 + type) * 64 + square, with white
+ * first, types ordered pawn, knight, bishop, rook, queen, king, and squares from a8 to h1 row by row. For black's side
+ * of the board, the colors are swapped and the board is flipped upside down first.
+ * <p>
+ * Hidden weights and biases are scaled by HIDDEN_SCALE, output weights by OUTPUT_SCALE, and the output bias by both.
+ * The output is scaled so that a pawn is worth about a hundred, like the hand-written evaluation.
+ */
+public final class Network {
+    static final int FEATURE_COUNT = 2 * 6 * 64;
+    static final int HIDDEN_SCALE = 255;
+    static final int OUTPUT_SCALE = 64;
+    static final int EVALUATION_SCALE = 400;
+    private static final int MAGIC = 0x414A4E4E;
+    private static final int MAX_HIDDEN_SIZE = 4096;
+
+    final int hiddenSize;
+    // Indexed by feature times the hidden size plus the hidden neuron, so a feature's weights are contiguous
+    final short[] hiddenWeights;
+    final short[] hiddenBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private Network(int hiddenSize, short[] hiddenWeights, short[] hiddenBiases, short[] outputWeights,
+                    int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.hiddenWeights = hiddenWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Reads the weights of a network.
+     *
+     * @param path the weights file
+     * @return the network
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static Network load(Path path) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("The network is malformed: not a network file");
+            }
+            int hiddenSize = input.readInt();
+            if (hiddenSize < 1 || hiddenSize > MAX_HIDDEN_SIZE) {
+                throw new IOException("The network is malformed: invalid hidden size " + hiddenSize);
+            }
+            var hiddenWeights = readShorts(input, FEATURE_COUNT * hiddenSize);
+            var hiddenBiases = readShorts(input, hiddenSize);
+            var outputWeights = readShorts(input, 2 * hiddenSize);
+            int outputBias = input.readInt();
+            if (input.read() != -1) {
+                throw new IOException("The network is malformed: trailing bytes");
+            }
+            return new Network(hiddenSize, hiddenWeights, hiddenBiases, outputWeights, outputBias);
+        } catch (EOFException e) {
+            throw new IOException("The network is malformed: truncated", e);
+        }
+    }
+
+    /**
+     * Evaluates a position from scratch, rather than from the pieces of the position evaluated before it.
+     *
+     * @param game the position
+     * @return the evaluation for the player to move, in about a hundred per pawn
+     */
+    public int evaluate(Game game) {
+        var accumulator = new Accumulator(this);
+        accumulator.refresh(game);
+        return accumulator.evaluate(game.getActivePlayer());
+    }
+
+    private static short[] readShorts(DataInputStream input, int count) throws IOException {
+        var shorts = new short[count];
+        for (int i = 0; i < count; i++) {
+            shorts[i] = input.readShort();
+        }
+        return shorts;
+    }
+}
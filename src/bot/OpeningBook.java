@@ -0,0 +1,191 @@
+package bot;
+
+import backend.Game;
+import backend.Move;
+import backend.Piece;
+import backend.PolyglotKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An opening book in the Polyglot format, which is a file of 16 byte big-endian entries sorted by PolyglotKey. Each
+ * entry holds the key, the move, its weight and a learning value which is not used. The file is memory mapped, so
+ * any number of games can read the same book without copying it onto the heap.
+ */
+public final class OpeningBook implements Closeable {
+    public static final int ENTRY_SIZE = 16;
+    private static final int MOVE_OFFSET = 8;
+    private static final int WEIGHT_OFFSET = 10;
+    private static final int COORDINATE_BITS = 3;
+    private static final int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+    private static final int SQUARE_BITS = 2 * COORDINATE_BITS;
+    private static final int PROMOTION_SHIFT = 2 * SQUARE_BITS;
+    private static final int BOARD_SIZE = 8;
+    private static final int SHORT_CASTLE_KING_FILE = 6;
+    private static final int LONG_CASTLE_KING_FILE = 2;
+    private static final String PROMOTION_LETTERS = " nbrq";
+
+    private final FileChannel channel;
+    private final ByteBuffer entries;
+    private final int entryCount;
+
+    private OpeningBook(FileChannel channel, ByteBuffer entries) {
+        this.channel = channel;
+        this.entries = entries;
+        entryCount = entries.capacity() / ENTRY_SIZE;
+    }
+
+    /**
+     * Maps a book into memory, read only.
+     *
+     * @param path the book file
+     * @return the book
+     * @throws IOException if the book cannot be mapped
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("The opening book is malformed: " + path);
+            }
+            return new OpeningBook(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Chooses one of the book moves for the position at random, in proportion to the weights of the moves. Moves
+     * which are not legal in the position, which can only happen if two positions share a key, are left out.
+     *
+     * @param game the position to look up
+     * @return a book move, which has not been performed, or empty if the position is not in the book
+     */
+    public Optional<Move> pick(Game game) {
+        var moves = new ArrayList<Move>();
+        var weights = new ArrayList<Integer>();
+        int totalWeight = 0;
+        var squares = game.getBoard();
+        long key = PolyglotKey.of(game);
+        for (int index = lowerBound(key); index < entryCount; index++) {
+            int offset = index * ENTRY_SIZE;
+            if (entries.getLong(offset) != key) {
+                break;
+            }
+            var move = decode(game, squares, Short.toUnsignedInt(entries.getShort(offset + MOVE_OFFSET)));
+            if (move.isPresent()) {
+                int weight = Short.toUnsignedInt(entries.getShort(offset + WEIGHT_OFFSET));
+                moves.add(move.get());
+                weights.add(weight);
+                totalWeight += weight;
+            }
+        }
+        if (moves.isEmpty()) {
+            return Optional.empty();
+        }
+        if (totalWeight == 0) {
+            return Optional.of(moves.get(ThreadLocalRandom.current().nextInt(moves.size())));
+        }
+        int choice = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < moves.size(); i++) {
+            choice -= weights.get(i);
+            if (choice < 0) {
+                return Optional.of(moves.get(i));
+            }
+        }
+        throw new IllegalStateException("The weights do not add up");
+    }
+
+    // Finds the first entry whose key is not less than the given key, comparing keys as unsigned like Polyglot does
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(middle * ENTRY_SIZE), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Polyglot stores the destination square in the low six bits, then the origin square, then the promotion piece.
+     * Each square is its file followed by its rank counted from zero, and castling is stored as the king capturing
+     * its own rook.
+     *
+     * @param game the position the move is played in
+     * @param move the move to encode, which must be legal in the position
+     * @return the move as Polyglot stores it
+     */
+    public static int encode(Game game, Move move) {
+        var piece = game.getBoard()[move.start.row][move.start.column];
+        int endColumn = move.end.column;
+        if (piece.type == Piece.Type.KING && Math.abs(move.end.column - move.start.column) > 1) {
+            endColumn = (move.end.column > move.start.column) ? BOARD_SIZE - 1 : 0;
+        }
+        int promotion = move.promotionPieceType().map(OpeningBook::promotionCode).orElse(0);
+        int end = square(move.end.row, endColumn);
+        int start = square(move.start.row, move.start.column);
+        return (promotion << PROMOTION_SHIFT) | (start << SQUARE_BITS) | end;
+    }
+
+    private static int square(int row, int column) {
+        int rank = BOARD_SIZE - 1 - row;
+        return (rank << COORDINATE_BITS) | column;
+    }
+
+    private static int promotionCode(Piece.Type type) {
+        return switch (type) {
+            case KNIGHT -> 1;
+            case BISHOP -> 2;
+            case ROOK -> 3;
+            case QUEEN -> 4;
+            default -> throw new IllegalArgumentException("Cannot promote to " + type);
+        };
+    }
+
+    private static Optional<Move> decode(Game game, Piece[][] squares, int encoded) {
+        int endFile = encoded & COORDINATE_MASK;
+        int endRank = (encoded >> COORDINATE_BITS) & COORDINATE_MASK;
+        int startFile = (encoded >> SQUARE_BITS) & COORDINATE_MASK;
+        int startRank = (encoded >> (SQUARE_BITS + COORDINATE_BITS)) & COORDINATE_MASK;
+        int promotion = (encoded >> PROMOTION_SHIFT) & COORDINATE_MASK;
+        if (promotion >= PROMOTION_LETTERS.length()) {
+            return Optional.empty();
+        }
+        var piece = squares[BOARD_SIZE - 1 - startRank][startFile];
+        var target = squares[BOARD_SIZE - 1 - endRank][endFile];
+        if (piece != null && piece.type == Piece.Type.KING && target != null && target.color == piece.color) {
+            endFile = (endFile > startFile) ? SHORT_CASTLE_KING_FILE : LONG_CASTLE_KING_FILE;
+        }
+        var uci = new StringBuilder()
+                .append((char) ('a' + startFile)).append(startRank + 1)
+                .append((char) ('a' + endFile)).append(endRank + 1);
+        if (promotion != 0) {
+            uci.append(PROMOTION_LETTERS.charAt(promotion));
+        }
+        try {
+            return Optional.of(game.fromUci(uci.toString()));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -4,7 +4,7 @@ import backend.Color;
 import backend.Piece;
 
 final class PieceSquareTables {
-    private static final int[][] PAWN = new int[][]{
+    static final int[][] PAWN = new int[][]{
             new int[]{ 0,  0,   0,   0,   0,   0,  0,  0},
             new int[]{50, 50,  50,  50,  50,  50, 50, 50},
             new int[]{10, 10,  20,  30,  30,  20, 10, 10},
@@ -15,7 +15,7 @@ final class PieceSquareTables {
             new int[]{ 0,  0,   0,   0,   0,   0,  0,  0},
     };
 
-    private static final int[][] KNIGHT = new int[][]{
+    static final int[][] KNIGHT = new int[][]{
             new int[]{-50, -40, -30, -30, -30, -30, -40, -50},
             new int[]{-40, -20,   0,   0,   0,   0, -20, -40},
             new int[]{-30,   0,  10,  15,  15,  10,   0, -30},
@@ -26,7 +26,7 @@ final class PieceSquareTables {
             new int[]{-50, -40, -30, -30, -30, -30, -40, -50},
     };
 
-    private static final int[][] BISHOP = new int[][]{
+    static final int[][] BISHOP = new int[][]{
             new int[]{-20, -10, -10, -10, -10, -10, -10, -20},
             new int[]{-10,   0,   0,   0,   0,   0,   0, -10},
             new int[]{-10,   0,   5,  10,  10,   5,   0, -10},
@@ -37,7 +37,7 @@ final class PieceSquareTables {
             new int[]{-20, -10, -10, -10, -10, -10, -10, -20},
     };
 
-    private static final int[][] ROOK = new int[][]{
+    static final int[][] ROOK = new int[][]{
             new int[]{ 0,  0,  0,  0,  0,  0,  0,  0},
             new int[]{ 5, 10, 10, 10, 10, 10, 10,  5},
             new int[]{-5,  0,  0,  0,  0,  0,  0, -5},
@@ -48,7 +48,7 @@ final class PieceSquareTables {
             new int[]{ 0,  0,  0,  5,  5,  0,  0,  0},
     };
 
-    private static final int[][] QUEEN = new int[][]{
+    static final int[][] QUEEN = new int[][]{
             new int[]{-20, -10, -10, -5, -5, -10, -10, -20},
             new int[]{-10,   0,   0,  0,  0,   0,   0, -10},
             new int[]{-10,   0,   5,  5,  5,   5,   0, -10},
@@ -59,7 +59,7 @@ final class PieceSquareTables {
             new int[]{-20, -10, -10, -5, -5, -10, -10, -20},
     };
 
-    private static final int[][] EARLY_GAME_KING = new int[][]{
+    static final int[][] EARLY_GAME_KING = new int[][]{
             new int[]{-30, -40, -40, -50, -50, -40, -40, -30},
             new int[]{-30, -40, -40, -50, -50, -40, -40, -30},
             new int[]{-30, -40, -40, -50, -50, -40, -40, -30},
@@ -70,7 +70,7 @@ final class PieceSquareTables {
             new int[]{ 20,  30,  10,   0,   0,  10,  30,  20},
     };
 
-    private static final int[][] LATE_GAME_KING = new int[][]{
+    static final int[][] LATE_GAME_KING = new int[][]{
             new int[]{-50, -40, -30, -20, -20, -30, -40, -50},
             new int[]{-30, -20, -10,   0,   0, -10, -20, -30},
             new int[]{-30, -10,  20,  30,  30,  20, -10, -30},
@@ -0,0 +1,33 @@
+package bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Flight Recorder for every search of a move, from the first iteration of deepening to the last.
+ */
+@Name("ajedrez.Search")
+@Label("Search")
+@Category({"Ajedrez", "Search"})
+@Description("The search for the best move of a position")
+final class SearchEvent extends Event {
+    @Label("Lines")
+    int lines;
+
+    @Label("Depth")
+    @Description("The deepest iteration which was completed, in plies")
+    int depth;
+
+    @Label("Score")
+    @Description("The evaluation of the best move for the player to move")
+    int score;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Best Move")
+    String bestMove;
+}
@@ -0,0 +1,31 @@
+package bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Flight Recorder for every iteration of deepening, including the last one if time ran out during it.
+ */
+@Name("ajedrez.SearchIteration")
+@Label("Search Iteration")
+@Category({"Ajedrez", "Search"})
+@Description("One iteration of deepening in the search for the best move")
+final class SearchIterationEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Score")
+    @Description("The evaluation of the best move after the iteration, which is that of the iteration before if it"
+            + " was stopped")
+    int score;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Complete")
+    @Description("If the iteration searched every root move rather than running out of time")
+    boolean isComplete;
+}
@@ -0,0 +1,55 @@
+package bot;
+
+public final class SearchLimits {
+    private static final long NANO_SECONDS_PER_MILLISECOND = 1_000_000;
+
+    final int maxDepth;
+    final long maxNanos;
+    final long maxNodes;
+
+    private SearchLimits(int maxDepth, long maxNanos, long maxNodes) {
+        this.maxDepth = maxDepth;
+        this.maxNanos = maxNanos;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Searches every root move to exactly the given number of plies, however long that takes.
+     *
+     * @param plies the number of plies to search, including the root move
+     * @return the search limits
+     */
+    public static SearchLimits depth(int plies) {
+        if (plies < 1) {
+            throw new IllegalArgumentException("Must search at least one ply");
+        }
+        return new SearchLimits(plies, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Deepens the search one ply at a time until the time budget runs out.
+     *
+     * @param milliseconds the time budget
+     * @return the search limits
+     */
+    public static SearchLimits time(long milliseconds) {
+        if (milliseconds <= 0) {
+            throw new IllegalArgumentException("Must search for a positive amount of time");
+        }
+        return new SearchLimits(Integer.MAX_VALUE, milliseconds * NANO_SECONDS_PER_MILLISECOND, Long.MAX_VALUE);
+    }
+
+    /**
+     * Deepens the search one ply at a time until it has searched the given number of positions. Unlike a time
+     * budget, the result does not depend on how fast the machine is or how busy it is.
+     *
+     * @param nodes the number of positions to search
+     * @return the search limits
+     */
+    public static SearchLimits nodes(long nodes) {
+        if (nodes <= 0) {
+            throw new IllegalArgumentException("Must search a positive number of positions");
+        }
+        return new SearchLimits(Integer.MAX_VALUE, Long.MAX_VALUE, nodes);
+    }
+}
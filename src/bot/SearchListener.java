@@ -0,0 +1,30 @@
+package bot;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Is told about every iteration of deepening as it finishes. Searches run on the thread that asked for them, so a
+ * listener shared by several searches at once must be thread safe, and should return quickly since the search waits.
+ */
+@FunctionalInterface
+public interface SearchListener {
+    /**
+     * Called once per iteration, including the last one, which may have stopped early because time ran out.
+     *
+     * @param statistics what the iteration did
+     * @param best       the best lines after the iteration, best first, which are those of the iteration before if it
+     *                   stopped early
+     */
+    void onIteration(SearchStatistics statistics, List<Analysis> best);
+
+    /**
+     * Prints every iteration, one line each.
+     *
+     * @param output where to print
+     * @return the listener
+     */
+    static SearchListener printing(PrintStream output) {
+        return (statistics, best) -> output.println(statistics + " " + best);
+    }
+}
@@ -0,0 +1,58 @@
+package bot;
+
+import java.util.Locale;
+
+/**
+ * What the search did during one iteration of deepening, which is one more ply than the iteration before.
+ */
+public final class SearchStatistics {
+    private static final double NANO_SECONDS_PER_SECOND = 1_000_000_000.0;
+
+    public final int depth;
+    public final long nodes;
+    // Positions evaluated statically at the end of the search, since there is no quiescence search
+    public final long leafNodes;
+    public final long transpositionProbes;
+    public final long transpositionHits;
+    public final long betaCutoffs;
+    public final long firstMoveCutoffs;
+    // The deepest ply reached, counting the root move, which may be short of the depth when the iteration stops early
+    public final int selectiveDepth;
+    public final long nanos;
+    public final boolean isComplete;
+
+    SearchStatistics(int depth, long nodes, long leafNodes, long transpositionProbes, long transpositionHits,
+                     long betaCutoffs, long firstMoveCutoffs, int selectiveDepth, long nanos, boolean isComplete) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.leafNodes = leafNodes;
+        this.transpositionProbes = transpositionProbes;
+        this.transpositionHits = transpositionHits;
+        this.betaCutoffs = betaCutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.selectiveDepth = selectiveDepth;
+        this.nanos = nanos;
+        this.isComplete = isComplete;
+    }
+
+    public long nodesPerSecond() {
+        return (nanos == 0) ? 0 : (long) (nodes * NANO_SECONDS_PER_SECOND / nanos);
+    }
+
+    /**
+     * The share of beta cutoffs caused by the first move searched, which shows how well the moves are ordered.
+     *
+     * @return the rate between zero and one, or zero if there were no cutoffs
+     */
+    public double firstMoveCutoffRate() {
+        return (betaCutoffs == 0) ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "depth %d%s seldepth %d nodes %d leaves %d nps %d tt %d/%d cutoffs %d"
+                        + " first %.2f time %.3fs", depth, isComplete ? "" : " (stopped)", selectiveDepth, nodes,
+                leafNodes, nodesPerSecond(), transpositionHits, transpositionProbes, betaCutoffs,
+                firstMoveCutoffRate(), nanos / NANO_SECONDS_PER_SECOND);
+    }
+}
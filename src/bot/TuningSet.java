@@ -0,0 +1,198 @@
+package bot;
+
+import backend.Color;
+import backend.Game;
+import backend.Piece;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Positions labelled with the result of the game they were played in, for tuning the evaluation. Each position is
+ * kept as its pieces' entries in the piece-square tables, packed into one short each, so that millions of positions
+ * fit in a few hundred megabytes and evaluating all of them only reads flat arrays.
+ * <p>
+ * The engine has no quiescence search, so rather than resolving captures, positions where the player to move is in
+ * check or can capture are left out, since their static evaluation says little about them.
+ */
+public final class TuningSet {
+    private static final int INITIAL_POSITIONS = 1 << 12;
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+    private static final int LOSS = 0;
+    private static final int MAX_PIECES = 64;
+    private static final int AVERAGE_PIECES = 24;
+
+    // Each piece is one more than its index into the piece-square tables, negated for black pieces
+    private short[] pieces = new short[INITIAL_POSITIONS * AVERAGE_PIECES];
+    private int[] offsets = new int[INITIAL_POSITIONS + 1];
+    // White's castling opportunities minus black's
+    private byte[] castling = new byte[INITIAL_POSITIONS];
+    // In half points for white
+    private byte[] results = new byte[INITIAL_POSITIONS];
+    private int size;
+    private final AtomicLong skipped = new AtomicLong();
+
+    private record Encoded(short[] pieces, int castling, int result) {
+    }
+
+    private TuningSet() {
+    }
+
+    /**
+     * Reads labelled positions, one per line, each a FEN or EPD followed by the result of its game as 1-0, 0-1, or
+     * 1/2-1/2, or as 1.0, 0.0, or 0.5 from white's point of view. The result may be quoted or in brackets, such as
+     * c9 "1-0"; or [0.5]. Lines are parsed in parallel.
+     *
+     * @param files the files to read
+     * @return the positions
+     * @throws IOException if a file cannot be read
+     */
+    public static TuningSet read(Iterable<Path> files) throws IOException {
+        var set = new TuningSet();
+        for (var file : files) {
+            try (var lines = Files.lines(file)) {
+                lines.parallel().map(set::encode).filter(Objects::nonNull).forEach(set::add);
+            }
+        }
+        return set;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the lines which were left out, either because they are malformed or because the position is not quiet.
+     *
+     * @return how many lines were left out
+     */
+    public long skipped() {
+        return skipped.get();
+    }
+
+    private Encoded encode(String line) {
+        var fields = line.trim().split("\\s+");
+        if (fields.length < 5 || line.startsWith("#")) {
+            skipped.incrementAndGet();
+            return null;
+        }
+        int result = result(fields[fields.length - 1]);
+        Game game;
+        try {
+            game = new Game(String.join(" ", fields[0], fields[1], fields[2], fields[3]));
+        } catch (IllegalArgumentException e) {
+            result = -1;
+            game = null;
+        }
+        if (result < 0 || !isQuiet(game)) {
+            skipped.incrementAndGet();
+            return null;
+        }
+        var squares = game.getBoard();
+        boolean isLateGame = MaterialWorth.totals(squares).isLateGame();
+        var encoded = new short[MAX_PIECES];
+        int count = 0;
+        for (int row = 0; row < squares.length; row++) {
+            for (int column = 0; column < squares[row].length; column++) {
+                var piece = squares[row][column];
+                if (piece == null) {
+                    continue;
+                }
+                int parameter = EvaluationTuner.tableParameter(piece.type, piece.color, row, column, isLateGame);
+                encoded[count++] = (short) ((piece.color == Color.WHITE) ? parameter + 1 : -(parameter + 1));
+            }
+        }
+        int castles = game.castleOpportunities(Color.WHITE) - game.castleOpportunities(Color.BLACK);
+        return new Encoded(Arrays.copyOf(encoded, count), castles, result);
+    }
+
+    private static int result(String field) {
+        var text = field.replaceAll("[\"\\[\\];]", "");
+        return switch (text) {
+            case "1-0", "1.0", "1" -> WIN;
+            case "1/2-1/2", "0.5" -> DRAW;
+            case "0-1", "0.0", "0" -> LOSS;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Tells if a position's static evaluation can be trusted, which is not the case when the player to move is in
+     * check or can capture, since the engine has no quiescence search to resolve them.
+     *
+     * @param game the position
+     * @return if the game is not over, the player to move is not in check, and no capture is possible
+     */
+    public static boolean isQuiet(Game game) {
+        var state = game.generateMoves();
+        if (state.isTerminal() || state.isCheck()) {
+            return false;
+        }
+        var squares = game.getBoard();
+        var enPassant = game.getEnPassantTarget();
+        for (var move : state.moves()) {
+            if (squares[move.end.row][move.end.column] != null
+                    || enPassant.isPresent() && enPassant.get() == move.end
+                    && squares[move.start.row][move.start.column].type == Piece.Type.PAWN) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void add(Encoded encoded) {
+        if (size == results.length) {
+            int capacity = 2 * size;
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+            castling = Arrays.copyOf(castling, capacity);
+            results = Arrays.copyOf(results, capacity);
+        }
+        int start = offsets[size];
+        if (start + encoded.pieces.length > pieces.length) {
+            pieces = Arrays.copyOf(pieces, 2 * pieces.length);
+        }
+        System.arraycopy(encoded.pieces, 0, pieces, start, encoded.pieces.length);
+        offsets[size + 1] = start + encoded.pieces.length;
+        castling[size] = (byte) encoded.castling;
+        results[size] = (byte) encoded.result;
+        size++;
+    }
+
+    /**
+     * Evaluates a position from white's point of view, which is linear in the parameters.
+     */
+    double evaluate(int position, double[] parameters) {
+        double value = parameters[EvaluationTuner.CASTLE] * castling[position];
+        for (int i = offsets[position]; i < offsets[position + 1]; i++) {
+            int piece = pieces[i];
+            int parameter = Math.abs(piece) - 1;
+            double pieceValue = parameters[parameter] + parameters[EvaluationTuner.materialParameter(parameter)];
+            value += (piece > 0) ? pieceValue : -pieceValue;
+        }
+        return value;
+    }
+
+    /**
+     * Adds the gradient of the evaluation of a position, scaled by the given factor, to the gradient.
+     */
+    void addGradient(int position, double factor, double[] gradient) {
+        gradient[EvaluationTuner.CASTLE] += factor * castling[position];
+        for (int i = offsets[position]; i < offsets[position + 1]; i++) {
+            int piece = pieces[i];
+            int parameter = Math.abs(piece) - 1;
+            double pieceFactor = (piece > 0) ? factor : -factor;
+            gradient[parameter] += pieceFactor;
+            gradient[EvaluationTuner.materialParameter(parameter)] += pieceFactor;
+        }
+    }
+
+    // The score of the game for white, between zero and one
+    double result(int position) {
+        return results[position] / 2.0;
+    }
+}
@@ -1,11 +1,16 @@
 package frontend;
 
+import bot.BotTurn;
+import bot.Network;
+import bot.OpeningBook;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
+import tablebase.Tablebases;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public final class Application extends javafx.application.Application {
     @Override
@@ -22,7 +27,15 @@ public final class Application extends javafx.application.Application {
         scene.heightProperty().addListener((observed, oldHeight, height) -> controller.sizeScene(scene));
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--book" -> BotTurn.useOpeningBook(OpeningBook.open(Path.of(args[i + 1])));
+                case "--tablebases" -> BotTurn.useTablebases(Tablebases.open(Path.of(args[i + 1])));
+                case "--network" -> BotTurn.useNetwork(Network.load(Path.of(args[i + 1])));
+                default -> System.err.println("Ignoring unknown option " + args[i]);
+            }
+        }
         launch();
     }
 }
@@ -6,16 +6,11 @@ import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
-import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.layout.GridPane;
 import javafx.scene.media.AudioClip;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.ImagePattern;
-import javafx.scene.shape.Rectangle;
 
 import java.util.*;
 import java.util.concurrent.Semaphore;
@@ -25,11 +20,6 @@ public final class BoardController {
 
     static final int ROW_COUNT = 8;
     static final int COLUMN_COUNT = 8;
-    private static final Color DARK_SQUARE = Color.rgb(160, 80, 0);
-    private static final Color LIGHT_SQUARE = Color.rgb(200, 100, 0);
-    private static final Color DARK_HIGHLIGHTED = Color.rgb(180, 160, 140);
-    private static final Color LIGHT_HIGHLIGHTED = Color.rgb(200, 160, 140);
-    private static final Color KING_CHECKED = Color.rgb(250, 90, 80);
     private static final AudioClip MOVE_SOUND
             = new AudioClip(Objects.requireNonNull(BoardController.class.getResource("/move.wav")).toExternalForm());
     private static final AudioClip ERROR_SOUND
@@ -42,15 +32,17 @@ public final class BoardController {
     private boolean displayWhite;
     private Players players;
     private Piece[][] boardPieces;
+    private BoardRenderer renderer;
 
     @FXML
-    private GridPane board;
+    private Canvas canvas;
 
     void setPlayerData(PlayerData player, Scene scene) throws InterruptedException {
         var size = new SceneSize(scene);
         game = new Game("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
         displayWhite = (player.color == backend.Color.WHITE);
         players = player.count;
+        renderer = new BoardRenderer(canvas);
         paintBoardAfterMove(game, size);
         scene.widthProperty().addListener((observed, oldWidth, width) -> paintLastBoard(new SceneSize(scene)));
         scene.heightProperty().addListener((observed, oldHeight, height) -> paintLastBoard(new SceneSize(scene)));
@@ -125,7 +117,6 @@ public final class BoardController {
         MOVE_SOUND.play();
         if (players == Players.TWO_PLAYERS) {
             displayWhite = !displayWhite;
-            paintBoard(game, size);
             state = game.generateMoves();
             paintBoard(game, size);
             if (state.isTerminal()) {
@@ -166,11 +157,12 @@ public final class BoardController {
     }
 
     private Position getClickPosition(SceneSize size, MouseEvent event) {
-        int column = (int) (event.getX() / size.width);
+        // A click on the far edge of the board would otherwise be one square past it
+        int column = Math.min((int) (event.getX() / size.width), COLUMN_COUNT - 1);
         column = maybeReverse(COLUMN_COUNT, column, !displayWhite);
-        int row = (int) (event.getY() / size.height);
+        int row = Math.min((int) (event.getY() / size.height), ROW_COUNT - 1);
         row = maybeReverse(ROW_COUNT, row, !displayWhite);
-        return new Position(row, column);
+        return Position.of(row, column);
     }
 
     private List<Position> getEndPositions(State state, Position clickPosition) {
@@ -262,26 +254,9 @@ public final class BoardController {
 
     private void paintBoardInternal(Piece[][] squares, SceneSize size,
                                     List<Position> endPositions, boolean isReverse, boolean withCheck) {
-        board.getChildren().clear();
-        for (int i = 0; i < ROW_COUNT; i++) {
-            int row = maybeReverse(ROW_COUNT, i, isReverse);
-            for (int j = 0; j < COLUMN_COUNT; j++) {
-                int column = maybeReverse(COLUMN_COUNT, j, isReverse);
-                var r = new Rectangle(size.width, size.height);
-                var background = getBackground(i, j, endPositions);
-                r.setFill(background);
-                var piece = squares[i][j];
-                if (piece != null) {
-                    boolean isPieceWhite = (piece.color == backend.Color.WHITE);
-                    boolean isPlayerKing = (piece.type == Piece.Type.KING) && (isPieceWhite == displayWhite);
-                    boolean isKingChecked = withCheck && (state.isTerminal() ? state.isCheckmate() : state.isCheck());
-                    boolean inCheck = isPlayerKing && isKingChecked;
-                    var image = getPieceImage(piece, background, inCheck);
-                    r.setFill(image);
-                }
-                board.add(r, column, row);
-            }
-        }
+        boolean isKingChecked = withCheck && (state.isTerminal() ? state.isCheckmate() : state.isCheck());
+        var checkedKing = isKingChecked ? (displayWhite ? backend.Color.WHITE : backend.Color.BLACK) : null;
+        renderer.draw(squares, size, endPositions, isReverse, checkedKing);
     }
 
     private int maybeReverse(int count, int index, boolean isReverse) {
@@ -290,46 +265,4 @@ public final class BoardController {
         }
         return count - 1 - index;
     }
-
-    private Color getBackground(int i, int j, List<Position> endPositions) {
-        boolean isLightSquare = (i + j) % 2 == 0;
-        var background = isLightSquare ? LIGHT_SQUARE : DARK_SQUARE;
-        for (var end : endPositions) {
-            if (end.row == i && end.column == j) {
-                background = isLightSquare ? LIGHT_HIGHLIGHTED : DARK_HIGHLIGHTED;
-                break;
-            }
-        }
-        return background;
-    }
-
-    private ImagePattern getPieceImage(Piece piece, Color background, boolean inCheck) {
-        var imageName = piece.color + "_" + piece.type + ".png";
-        var image = new Image(imageName);
-        int w = (int) image.getWidth();
-        int h = (int) image.getHeight();
-        var outputImage = new WritableImage(w, h);
-        var writer = outputImage.getPixelWriter();
-        var reader = image.getPixelReader();
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                var oldPixel = reader.getColor(x, y);
-                var pixel = background;
-                if (oldPixel.isOpaque()) {
-                    pixel = oldPixel;
-                    if (inCheck) {
-                        double blackCutoff = 0.4;
-                        double r = oldPixel.getRed();
-                        double g = oldPixel.getGreen();
-                        double b = oldPixel.getBlue();
-                        if (r > blackCutoff && g > blackCutoff && b > blackCutoff) {
-                            pixel = KING_CHECKED;
-                        }
-                    }
-                }
-                writer.setColor(x, y, pixel);
-            }
-        }
-        return new ImagePattern(outputImage);
-    }
 }
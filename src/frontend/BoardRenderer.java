@@ -0,0 +1,162 @@
+package frontend;
+
+import backend.Piece;
+import backend.Position;
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws the board onto a single canvas. Requests to draw only record what to draw, and the drawing itself happens on
+ * the next pulse, so a window resize which changes both the width and the height, or a move which is painted more
+ * than once, is drawn only once.
+ * <p>
+ * Pieces are drawn from sprites which are already scaled to the size of a square and tinted for their background,
+ * so drawing a frame only copies images. The sprites are recreated when the size of a square changes.
+ */
+final class BoardRenderer {
+    private static final Color DARK_SQUARE = Color.rgb(160, 80, 0);
+    private static final Color LIGHT_SQUARE = Color.rgb(200, 100, 0);
+    private static final Color DARK_HIGHLIGHTED = Color.rgb(180, 160, 140);
+    private static final Color LIGHT_HIGHLIGHTED = Color.rgb(200, 160, 140);
+    private static final Color KING_CHECKED = Color.rgb(250, 90, 80);
+    private static final int OPAQUE = 0xFF;
+    // Pixels lighter than this in every channel are the body of the piece rather than its outline
+    private static final int BLACK_CUTOFF = 102;
+
+    // The background and check only ever take a handful of values, so every tinted piece is kept once it is drawn
+    private record Sprite(Piece piece, Color background, boolean inCheck) {
+    }
+
+    private final Canvas canvas;
+    private final Map<Piece, Image> pieceImages = new HashMap<>();
+    private final Map<Sprite, Image> sprites = new HashMap<>();
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            isDrawPending = false;
+            drawNow();
+        }
+    };
+    private boolean isDrawPending;
+    private int spriteWidth;
+    private int spriteHeight;
+
+    private Piece[][] squares;
+    private SceneSize size;
+    private List<Position> endPositions;
+    private boolean isReverse;
+    private backend.Color checkedKing;
+
+    BoardRenderer(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /**
+     * Draws the board on the next pulse, replacing whatever was asked to be drawn before then.
+     *
+     * @param squares      the pieces, which must not change afterwards
+     * @param size         the size of one square
+     * @param endPositions the squares to highlight
+     * @param isReverse    if the board is shown from black's side
+     * @param checkedKing  the color of the king to show in check, or null if neither is
+     */
+    void draw(Piece[][] squares, SceneSize size, List<Position> endPositions, boolean isReverse,
+              backend.Color checkedKing) {
+        this.squares = squares;
+        this.size = size;
+        this.endPositions = endPositions;
+        this.isReverse = isReverse;
+        this.checkedKing = checkedKing;
+        if (!isDrawPending) {
+            isDrawPending = true;
+            pulse.start();
+        }
+    }
+
+    private void drawNow() {
+        canvas.setWidth(size.width * BoardController.COLUMN_COUNT);
+        canvas.setHeight(size.height * BoardController.ROW_COUNT);
+        int width = (int) Math.ceil(size.width);
+        int height = (int) Math.ceil(size.height);
+        if (width != spriteWidth || height != spriteHeight) {
+            spriteWidth = width;
+            spriteHeight = height;
+            pieceImages.clear();
+            sprites.clear();
+        }
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        var graphics = canvas.getGraphicsContext2D();
+        for (int i = 0; i < BoardController.ROW_COUNT; i++) {
+            int row = isReverse ? BoardController.ROW_COUNT - 1 - i : i;
+            for (int j = 0; j < BoardController.COLUMN_COUNT; j++) {
+                int column = isReverse ? BoardController.COLUMN_COUNT - 1 - j : j;
+                double x = column * size.width;
+                double y = row * size.height;
+                var background = getBackground(i, j);
+                var piece = squares[i][j];
+                if (piece == null) {
+                    graphics.setFill(background);
+                    graphics.fillRect(x, y, size.width, size.height);
+                    continue;
+                }
+                boolean inCheck = piece.type == Piece.Type.KING && piece.color == checkedKing;
+                var sprite = sprites.computeIfAbsent(new Sprite(piece, background, inCheck), this::createSprite);
+                graphics.drawImage(sprite, x, y, size.width, size.height);
+            }
+        }
+    }
+
+    private Color getBackground(int i, int j) {
+        boolean isLightSquare = (i + j) % 2 == 0;
+        for (var end : endPositions) {
+            if (end.row == i && end.column == j) {
+                return isLightSquare ? LIGHT_HIGHLIGHTED : DARK_HIGHLIGHTED;
+            }
+        }
+        return isLightSquare ? LIGHT_SQUARE : DARK_SQUARE;
+    }
+
+    /**
+     * Tints a piece scaled to the square, filling everything which is not opaque with the background, and the body
+     * of the piece with red if it is a king in check.
+     */
+    private Image createSprite(Sprite sprite) {
+        var image = pieceImages.computeIfAbsent(sprite.piece, piece ->
+                new Image(piece.color + "_" + piece.type + ".png", spriteWidth, spriteHeight, false, true));
+        int w = (int) image.getWidth();
+        int h = (int) image.getHeight();
+        var pixels = new int[w * h];
+        var format = PixelFormat.getIntArgbInstance();
+        image.getPixelReader().getPixels(0, 0, w, h, format, pixels, 0, w);
+        int background = argb(sprite.background);
+        int checked = argb(KING_CHECKED);
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            if (pixel >>> 24 != OPAQUE) {
+                pixels[i] = background;
+            } else if (sprite.inCheck && (pixel >> 16 & 0xFF) > BLACK_CUTOFF && (pixel >> 8 & 0xFF) > BLACK_CUTOFF
+                    && (pixel & 0xFF) > BLACK_CUTOFF) {
+                pixels[i] = checked;
+            }
+        }
+        var outputImage = new WritableImage(w, h);
+        outputImage.getPixelWriter().setPixels(0, 0, w, h, format, pixels, 0, w);
+        return outputImage;
+    }
+
+    private static int argb(Color color) {
+        return OPAQUE << 24 | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
+}
@@ -2,8 +2,11 @@ module ajedrez {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.media;
+    requires jdk.httpserver;
+    requires jdk.jfr;
 
     opens frontend to javafx.fxml;
     exports frontend;
     exports backend;
+    exports pgn;
 }
@@ -0,0 +1,84 @@
+package pgn;
+
+import backend.Game;
+import backend.Move;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public final class PgnGame {
+    private final Map<String, String> tags;
+    private final List<Move> moves;
+    private final Map<Integer, String> comments;
+    private final Map<Integer, List<String>> variations;
+    private final Game game;
+    private final String result;
+    private final String error;
+
+    PgnGame(Map<String, String> tags, List<Move> moves, Map<Integer, String> comments,
+            Map<Integer, List<String>> variations, Game game, String result, String error) {
+        this.tags = tags;
+        this.moves = moves;
+        this.comments = comments;
+        this.variations = variations;
+        this.game = game;
+        this.result = result;
+        this.error = error;
+    }
+
+    public Map<String, String> tags() {
+        return tags;
+    }
+
+    public Optional<String> tag(String name) {
+        return Optional.ofNullable(tags.get(name));
+    }
+
+    /**
+     * The moves of the main line, all of which have been performed on the game, so the last move can be undone
+     * first to walk back through the game.
+     *
+     * @return the performed moves, in order
+     */
+    public List<Move> moves() {
+        return moves;
+    }
+
+    /**
+     * The comments, keyed by the number of plies played before the comment appears.
+     *
+     * @return the comments of the main line
+     */
+    public Map<Integer, String> comments() {
+        return comments;
+    }
+
+    /**
+     * The unparsed movetext of each variation, keyed by the number of plies played before the variation appears,
+     * meaning that the variation replaces the last move of the main line. Empty unless variations were kept.
+     *
+     * @return the variations of the main line
+     */
+    public Map<Integer, List<String>> variations() {
+        return variations;
+    }
+
+    public Game game() {
+        return game;
+    }
+
+    public String result() {
+        return result;
+    }
+
+    /**
+     * If a move could not be resolved, the game is replayed only up to the move before it. If the FEN tag is not a
+     * position, none of the moves are replayed and the game is left at the standard starting position.
+     *
+     * @return why the game was not replayed until the end, if it was not
+     */
+    public Optional<String> error() {
+        return Optional.ofNullable(error);
+    }
+}
@@ -0,0 +1,279 @@
+package pgn;
+
+import backend.Game;
+import backend.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads PGN games one at a time through a fixed size buffer, so that databases of any size can be read without
+ * holding more than the current game in memory. The text is read as ISO 8859-1, as the PGN standard requires.
+ */
+public final class PgnReader implements Closeable {
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String UNKNOWN_RESULT = "*";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int END_OF_INPUT = -1;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final boolean keepVariations;
+    private final StringBuilder text = new StringBuilder();
+
+    public PgnReader(ReadableByteChannel channel, boolean keepVariations) {
+        this.channel = channel;
+        this.keepVariations = keepVariations;
+        buffer.flip();
+    }
+
+    /**
+     * Lazily reads the games of a PGN file, closing the file when the stream is closed.
+     *
+     * @param path           the PGN file
+     * @param keepVariations if the unparsed variations should be kept rather than skipped
+     * @return the games, in the order they appear in the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static Stream<PgnGame> games(Path path, boolean keepVariations) throws IOException {
+        var reader = new PgnReader(FileChannel.open(path, StandardOpenOption.READ), keepVariations);
+        return reader.games().onClose(reader::close);
+    }
+
+    public Stream<PgnGame> games() {
+        var games = new Spliterators.AbstractSpliterator<PgnGame>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super PgnGame> action) {
+                try {
+                    var game = readGame();
+                    game.ifPresent(action);
+                    return game.isPresent();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(games, false);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<PgnGame> readGame() throws IOException {
+        skipWhitespace();
+        if (peek() == END_OF_INPUT) {
+            return Optional.empty();
+        }
+        var tags = new LinkedHashMap<String, String>();
+        while (peek() == '[') {
+            next();
+            readTag(tags);
+            skipWhitespace();
+        }
+        var moves = new ArrayList<Move>();
+        var comments = new HashMap<Integer, String>();
+        var variations = new HashMap<Integer, List<String>>();
+        String error = null;
+        Game game;
+        try {
+            game = new Game(tags.getOrDefault("FEN", START_FEN));
+        } catch (IllegalArgumentException e) {
+            // The movetext is still read, so that the next game starts in the right place, but none of it is replayed
+            game = new Game(START_FEN);
+            error = e.getMessage();
+        }
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c == END_OF_INPUT || c == '[') {
+                return Optional.of(new PgnGame(tags, moves, comments, variations, game, UNKNOWN_RESULT, error));
+            }
+            if (c == '{') {
+                next();
+                readUntil('}');
+                comments.merge(moves.size(), text.toString().trim(), (old, added) -> old + " " + added);
+                continue;
+            }
+            if (c == ';' || c == '%') {
+                readUntil('\n');
+                continue;
+            }
+            if (c == '(') {
+                next();
+                readVariation();
+                if (keepVariations) {
+                    variations.computeIfAbsent(moves.size(), ply -> new ArrayList<>()).add(text.toString().trim());
+                }
+                continue;
+            }
+            if (c == ')') {
+                next();
+                continue;
+            }
+            readSymbol();
+            var symbol = text.toString();
+            if (isResult(symbol)) {
+                return Optional.of(new PgnGame(tags, moves, comments, variations, game, symbol, error));
+            }
+            var san = stripMoveNumber(symbol);
+            if (san.isEmpty() || san.charAt(0) == '$' || error != null) {
+                continue;
+            }
+            try {
+                var move = game.fromSan(san);
+                move.perform();
+                moves.add(move);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+        }
+    }
+
+    private static boolean isResult(String symbol) {
+        return symbol.equals("1-0") || symbol.equals("0-1") || symbol.equals("1/2-1/2")
+                || symbol.equals(UNKNOWN_RESULT);
+    }
+
+    private static String stripMoveNumber(String symbol) {
+        int i = 0;
+        while (i < symbol.length() && Character.isDigit(symbol.charAt(i))) {
+            i++;
+        }
+        if (i > 0 && i < symbol.length() && symbol.charAt(i) != '.') {
+            return symbol;
+        }
+        while (i < symbol.length() && symbol.charAt(i) == '.') {
+            i++;
+        }
+        return symbol.substring(i);
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        skipWhitespace();
+        text.setLength(0);
+        while (peek() != END_OF_INPUT && !Character.isWhitespace(peek()) && peek() != '"' && peek() != ']') {
+            text.append((char) next());
+        }
+        var name = text.toString();
+        skipWhitespace();
+        text.setLength(0);
+        if (peek() == '"') {
+            next();
+            for (int c = next(); c != '"' && c != END_OF_INPUT; c = next()) {
+                if (c == '\\') {
+                    c = next();
+                }
+                text.append((char) c);
+            }
+        }
+        var value = text.toString();
+        readUntil(']');
+        tags.put(name, value);
+    }
+
+    /**
+     * Reads the text of a variation, whose opening parenthesis has already been read, up to and including the
+     * matching closing parenthesis. Parentheses within comments do not count towards the nesting.
+     */
+    private void readVariation() throws IOException {
+        text.setLength(0);
+        int nesting = 1;
+        while (true) {
+            int c = next();
+            if (c == END_OF_INPUT) {
+                return;
+            }
+            if (c == '{') {
+                while (c != '}' && c != END_OF_INPUT) {
+                    append(c);
+                    c = next();
+                }
+            } else if (c == '(') {
+                nesting++;
+            } else if (c == ')') {
+                nesting--;
+                if (nesting == 0) {
+                    return;
+                }
+            }
+            append(c);
+        }
+    }
+
+    private void append(int c) {
+        if (keepVariations) {
+            text.append((char) c);
+        }
+    }
+
+    private void readSymbol() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c == END_OF_INPUT || Character.isWhitespace(c) || "{}();[".indexOf(c) >= 0) {
+                return;
+            }
+            text.append((char) next());
+        }
+    }
+
+    private void readUntil(char terminator) throws IOException {
+        text.setLength(0);
+        for (int c = next(); c != terminator && c != END_OF_INPUT; c = next()) {
+            text.append((char) c);
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (peek() != END_OF_INPUT && Character.isWhitespace(peek())) {
+            next();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                return END_OF_INPUT;
+            }
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c != END_OF_INPUT) {
+            buffer.position(buffer.position() + 1);
+        }
+        return c;
+    }
+}
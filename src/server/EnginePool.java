@@ -0,0 +1,55 @@
+package server;
+
+import backend.Game;
+import bot.BotTurn;
+import bot.SearchLimits;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs bot searches on one thread per core, so that searches never compete for the cores with each other. Searches
+ * wait in a single queue in the order they were asked for, and each session can only have one search at a time, so
+ * no session can starve the others. The queue is bounded, and searches beyond it are refused rather than delayed.
+ */
+final class EnginePool implements AutoCloseable {
+    private static final long NANO_SECONDS_PER_MILLISECOND = 1_000_000;
+    // A search always gets at least this long, even if it waited for most of its budget
+    private static final long MIN_SEARCH_MILLISECONDS = 10;
+
+    private final ThreadPoolExecutor engines;
+
+    EnginePool(int threads, int maxQueued) {
+        engines = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued));
+    }
+
+    /**
+     * Queues a search. The time budget counts from when the search was asked for, so time spent waiting for an
+     * engine is taken from the search, which keeps the time until the reply within the budget under load.
+     *
+     * @param game         the position to search, which must not be used by anything else
+     * @param milliseconds the time budget
+     * @return the best move in long algebraic notation, or null if the game is over
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     */
+    CompletableFuture<String> search(Game game, long milliseconds) {
+        long deadline = System.nanoTime() + milliseconds * NANO_SECONDS_PER_MILLISECOND;
+        return CompletableFuture.supplyAsync(() -> {
+            long remaining = (deadline - System.nanoTime()) / NANO_SECONDS_PER_MILLISECOND;
+            var limits = SearchLimits.time(Math.max(remaining, MIN_SEARCH_MILLISECONDS));
+            return BotTurn.analyse(game, limits).map(analysis -> analysis.move.toUci()).orElse(null);
+        }, engines);
+    }
+
+    int queued() {
+        return engines.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        engines.shutdownNow();
+    }
+}
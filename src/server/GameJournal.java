@@ -0,0 +1,328 @@
+package server;
+
+import backend.Game;
+import backend.Move;
+import backend.PackedPosition;
+import backend.Piece;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only file of the games hosted by the server, from which they are replayed when the server restarts. A
+ * game is journalled as the position it started from followed by its moves, two bytes each, and each game gets a
+ * number in the journal so that its moves need not repeat its id.
+ * <p>
+ * Records are gathered in memory and written to the file, then forced to the disk, every FLUSH_MILLISECONDS, so a
+ * crash loses at most the moves of that long. Opening a journal replays it, and rewrites it with only the games which
+ * had not ended, so the file never holds more than the games since the last restart.
+ */
+final class GameJournal implements AutoCloseable {
+    private static final int MAGIC = 0x414A474A;
+    private static final byte CREATE = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final int CREATE_SIZE = Byte.BYTES + Integer.BYTES + 2 * Long.BYTES + PackedPosition.SIZE;
+    private static final int MOVE_SIZE = Byte.BYTES + Integer.BYTES + Short.BYTES;
+    private static final int END_SIZE = Byte.BYTES + Integer.BYTES;
+    private static final long FLUSH_MILLISECONDS = 100;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    private static final int SQUARE_BITS = 6;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int BOARD_SIZE = 8;
+    private static final String PROMOTION_LETTERS = " nbrq";
+
+    // A game read back from the journal, with its moves kept encoded until it is known to still be going
+    private static final class Entry {
+        private final UUID id;
+        private final byte[] start;
+        private short[] moves = new short[16];
+        private int moveCount;
+
+        private Entry(UUID id, byte[] start) {
+            this.id = id;
+            this.start = start;
+        }
+
+        private void add(short move) {
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, 2 * moves.length);
+            }
+            moves[moveCount++] = move;
+        }
+    }
+
+    private final FileChannel channel;
+    private final ScheduledExecutorService flusher;
+    // Appended to while holding this journal's lock, and swapped with the spare to be written
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final Object writeLock = new Object();
+    private int nextNumber;
+    private IOException failure;
+
+    private GameJournal(FileChannel channel, int nextNumber) {
+        this.channel = channel;
+        this.nextNumber = nextNumber;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_MILLISECONDS, FLUSH_MILLISECONDS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a journal, creating it if it does not exist, and replays the games which had not ended into sessions.
+     * A record cut short by a crash ends the journal.
+     *
+     * @param file     the journal file
+     * @param sessions the map to put the replayed sessions in, keyed by id
+     * @return the journal, which the replayed sessions record to
+     * @throws IOException if the journal cannot be read or rewritten, or is not a journal
+     */
+    static GameJournal open(Path file, Map<String, Session> sessions) throws IOException {
+        var entries = Files.exists(file) ? read(file) : List.<Entry>of();
+        var compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        var games = new ArrayList<Game>(entries.size());
+        try (var output = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            buffer.putInt(MAGIC);
+            for (int number = 0; number < entries.size(); number++) {
+                var entry = entries.get(number);
+                buffer = ensureRemaining(output, buffer, CREATE_SIZE + entry.moveCount * MOVE_SIZE);
+                putCreate(buffer, number, entry.id, ByteBuffer.wrap(entry.start));
+                try {
+                    games.add(replay(entry));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("The game journal is malformed: " + e.getMessage(), e);
+                }
+                for (int i = 0; i < entry.moveCount; i++) {
+                    putMove(buffer, number, entry.moves[i]);
+                }
+            }
+            write(output, buffer);
+            output.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        var journal = new GameJournal(FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                entries.size());
+        for (int number = 0; number < entries.size(); number++) {
+            var id = entries.get(number).id.toString();
+            sessions.put(id, new Session(id, games.get(number), journal, number));
+        }
+        return journal;
+    }
+
+    private static List<Entry> read(Path file) throws IOException {
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("The game journal is malformed: " + file);
+        }
+        var numbered = new LinkedHashMap<Integer, Entry>();
+        while (buffer.remaining() >= END_SIZE) {
+            int position = buffer.position();
+            byte type = buffer.get();
+            int size = switch (type) {
+                case CREATE -> CREATE_SIZE;
+                case MOVE -> MOVE_SIZE;
+                case END -> END_SIZE;
+                default -> throw new IOException("The game journal is malformed: unknown record " + type);
+            };
+            if (position + size > buffer.limit()) {
+                break;
+            }
+            int number = buffer.getInt();
+            switch (type) {
+                case CREATE -> {
+                    var id = new UUID(buffer.getLong(), buffer.getLong());
+                    var start = new byte[PackedPosition.SIZE];
+                    buffer.get(start);
+                    numbered.put(number, new Entry(id, start));
+                }
+                case MOVE -> {
+                    short move = buffer.getShort();
+                    var entry = numbered.get(number);
+                    if (entry != null) {
+                        entry.add(move);
+                    }
+                }
+                default -> numbered.remove(number);
+            }
+        }
+        return new ArrayList<>(numbered.values());
+    }
+
+    private static Game replay(Entry entry) {
+        var game = PackedPosition.decode(ByteBuffer.wrap(entry.start));
+        for (int i = 0; i < entry.moveCount; i++) {
+            game.fromUci(decode(entry.moves[i])).perform();
+        }
+        return game;
+    }
+
+    private static ByteBuffer ensureRemaining(FileChannel output, ByteBuffer buffer, int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+        write(output, buffer);
+        return (buffer.capacity() >= size) ? buffer : ByteBuffer.allocate(size);
+    }
+
+    private static void write(FileChannel output, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void putCreate(ByteBuffer buffer, int number, UUID id, ByteBuffer start) {
+        buffer.put(CREATE).putInt(number).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        buffer.put(start);
+    }
+
+    private static void putMove(ByteBuffer buffer, int number, short move) {
+        buffer.put(MOVE).putInt(number).putShort(move);
+    }
+
+    /**
+     * Encodes a move as its start and end squares, six bits each counting from a8, and the promotion type in the
+     * three bits above them.
+     */
+    private static short encode(Move move) {
+        int promotion = move.promotionPieceType().map(GameJournal::promotionCode).orElse(0);
+        int start = move.start.row * BOARD_SIZE + move.start.column;
+        int end = move.end.row * BOARD_SIZE + move.end.column;
+        return (short) (promotion << (2 * SQUARE_BITS) | start << SQUARE_BITS | end);
+    }
+
+    private static int promotionCode(Piece.Type type) {
+        return switch (type) {
+            case KNIGHT -> 1;
+            case BISHOP -> 2;
+            case ROOK -> 3;
+            case QUEEN -> 4;
+            default -> throw new IllegalArgumentException("Cannot promote to " + type);
+        };
+    }
+
+    private static String decode(short move) {
+        int end = move & SQUARE_MASK;
+        int start = (move >> SQUARE_BITS) & SQUARE_MASK;
+        int promotion = (move >> (2 * SQUARE_BITS)) & SQUARE_MASK;
+        if (promotion >= PROMOTION_LETTERS.length()) {
+            throw new IllegalArgumentException("The game journal is malformed: invalid promotion " + promotion);
+        }
+        var uci = new StringBuilder()
+                .append((char) ('a' + start % BOARD_SIZE)).append(BOARD_SIZE - start / BOARD_SIZE)
+                .append((char) ('a' + end % BOARD_SIZE)).append(BOARD_SIZE - end / BOARD_SIZE);
+        if (promotion != 0) {
+            uci.append(PROMOTION_LETTERS.charAt(promotion));
+        }
+        return uci.toString();
+    }
+
+    /**
+     * Journals a new game.
+     *
+     * @param id   the id of the game's session
+     * @param game the position the game starts from
+     * @return the number of the game in the journal
+     * @throws IllegalArgumentException if the position has too many pieces to be journalled
+     */
+    synchronized int create(String id, Game game) {
+        var start = ByteBuffer.allocate(PackedPosition.SIZE);
+        PackedPosition.encode(game, start);
+        var uuid = UUID.fromString(id);
+        reserve(CREATE_SIZE);
+        putCreate(pending, nextNumber, uuid, start.flip());
+        return nextNumber++;
+    }
+
+    synchronized void move(int number, Move move) {
+        reserve(MOVE_SIZE);
+        putMove(pending, number, encode(move));
+    }
+
+    synchronized void end(int number) {
+        reserve(END_SIZE);
+        pending.put(END).putInt(number);
+    }
+
+    // Grows the buffer rather than writing from the caller, so that appending never waits for the disk
+    private void reserve(int size) {
+        if (failure != null) {
+            throw new UncheckedIOException("The game journal cannot be written", failure);
+        }
+        if (pending.remaining() < size) {
+            var grown = ByteBuffer.allocate(2 * pending.capacity());
+            grown.put(pending.flip());
+            pending = grown;
+        }
+    }
+
+    /**
+     * Writes everything journalled so far and forces it to the disk.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    void flush() throws IOException {
+        synchronized (writeLock) {
+            ByteBuffer full;
+            synchronized (this) {
+                if (pending.position() == 0) {
+                    return;
+                }
+                full = pending;
+                pending = spare;
+                spare = full;
+            }
+            write(channel, full);
+            channel.force(false);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    // The flusher is not interrupted, since interrupting a write would close the channel
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
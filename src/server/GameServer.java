@@ -0,0 +1,275 @@
+package server;
+
+import backend.Game;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hosts many games at once over HTTP on the loopback address, without any user interface. Each game is a session
+ * which the user plays moves in and asks the bot to move in:
+ * <pre>
+ * POST   /games              creates a game from the FEN in the body, or the starting position if it is empty
+ * GET    /games/{id}         describes the position and its state
+ * POST   /games/{id}/moves   plays the move in long algebraic notation in the body, such as e2e4
+ * POST   /games/{id}/bot     makes the bot move, optionally within ?time=milliseconds
+ * DELETE /games/{id}         ends the game
+ * </pre>
+ * Requests are answered in plain text. Bot moves are searched on a pool with one engine per core, and the reply is
+ * sent from the engine once it has moved, so waiting for the bot ties up no thread of the server. Given a journal, the
+ * server records its games in it and resumes them from it when it restarts.
+ */
+public final class GameServer implements AutoCloseable {
+    private static final String USAGE = "Usage: GameServer [--port number] [--engines count] [--max-sessions count]"
+            + " [--max-queued count] [--journal file]";
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String GAMES = "/games";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_SESSIONS = 10_000;
+    private static final int DEFAULT_MAX_QUEUED = 1_000;
+    private static final int REQUEST_THREADS = 4;
+    private static final long DEFAULT_BOT_MILLISECONDS = 1_000;
+    private static final long MAX_BOT_MILLISECONDS = 30_000;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final int maxSessions;
+    private final EnginePool engines;
+    private final HttpServer server;
+    private final ExecutorService requests;
+    // Null if the games are only kept in memory
+    private final GameJournal journal;
+
+    private GameServer(int port, int engineCount, int maxSessions, int maxQueued, Path journalFile)
+            throws IOException {
+        this.maxSessions = maxSessions;
+        journal = (journalFile == null) ? null : GameJournal.open(journalFile, sessions);
+        engines = new EnginePool(engineCount, maxQueued);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        requests = Executors.newFixedThreadPool(REQUEST_THREADS);
+        server.setExecutor(requests);
+        server.createContext(GAMES, this::handle);
+    }
+
+    /**
+     * Starts serving on the loopback address.
+     *
+     * @param port        the port, or zero for any free port
+     * @param engineCount how many bot searches run at once, usually one per core
+     * @param maxSessions how many games may be hosted at once
+     * @param maxQueued   how many bot searches may wait for an engine before more are refused
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static GameServer start(int port, int engineCount, int maxSessions, int maxQueued) throws IOException {
+        return start(port, engineCount, maxSessions, maxQueued, null);
+    }
+
+    /**
+     * Starts serving on the loopback address, resuming the games of a journal and recording games to it.
+     *
+     * @param port        the port, or zero for any free port
+     * @param engineCount how many bot searches run at once, usually one per core
+     * @param maxSessions how many games may be hosted at once
+     * @param maxQueued   how many bot searches may wait for an engine before more are refused
+     * @param journalFile the journal, which is created if it does not exist, or null to keep games only in memory
+     * @return the running server
+     * @throws IOException if the port cannot be bound, or the journal cannot be read or written
+     */
+    public static GameServer start(int port, int engineCount, int maxSessions, int maxQueued, Path journalFile)
+            throws IOException {
+        if (engineCount < 1 || maxSessions < 1 || maxQueued < 1) {
+            throw new IllegalArgumentException("The server needs at least one engine, session, and queued search");
+        }
+        var gameServer = new GameServer(port, engineCount, maxSessions, maxQueued, journalFile);
+        gameServer.server.start();
+        return gameServer;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int engineCount = Runtime.getRuntime().availableProcessors();
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        int maxQueued = DEFAULT_MAX_QUEUED;
+        Path journalFile = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--engines" -> engineCount = Integer.parseInt(args[++i]);
+                    case "--max-sessions" -> maxSessions = Integer.parseInt(args[++i]);
+                    case "--max-queued" -> maxQueued = Integer.parseInt(args[++i]);
+                    case "--journal" -> journalFile = Path.of(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            var gameServer = start(port, engineCount, maxSessions, maxQueued, journalFile);
+            System.err.println("Serving " + gameServer.sessions.size() + " games on port " + gameServer.port());
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving, and writes out the journal if there is one.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        requests.shutdownNow();
+        engines.close();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            var path = exchange.getRequestURI().getPath().substring(GAMES.length());
+            var method = exchange.getRequestMethod();
+            if (path.isEmpty() || path.equals("/")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, "Method not allowed");
+                    return;
+                }
+                create(exchange);
+                return;
+            }
+            var parts = path.substring(1).split("/");
+            var session = sessions.get(parts[0]);
+            if (session == null || parts.length > 2) {
+                send(exchange, 404, "No such game");
+                return;
+            }
+            var action = (parts.length == 2) ? parts[1] : "";
+            switch (method + " " + action) {
+                case "GET " -> send(exchange, 200, session.describe());
+                case "DELETE " -> {
+                    sessions.remove(session.id);
+                    session.end();
+                    send(exchange, 204, "");
+                }
+                case "POST moves" -> {
+                    session.play(body(exchange).trim());
+                    send(exchange, 200, session.describe());
+                }
+                case "POST bot" -> bot(exchange, session);
+                default -> send(exchange, 404, "No such action");
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            send(exchange, 409, e.getMessage());
+        } catch (RuntimeException e) {
+            send(exchange, 500, "The server failed: " + e);
+        }
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        var fen = body(exchange).trim();
+        var game = new Game(fen.isEmpty() ? START_FEN : fen);
+        Session session;
+        // Games are only ever added here, so checking the cap and adding under one lock cannot overshoot it
+        synchronized (sessions) {
+            if (sessions.size() >= maxSessions) {
+                session = null;
+            } else {
+                var id = UUID.randomUUID().toString();
+                int journalNumber = (journal == null) ? 0 : journal.create(id, game);
+                session = new Session(id, game, journal, journalNumber);
+                sessions.put(session.id, session);
+            }
+        }
+        if (session == null) {
+            send(exchange, 503, "Too many games");
+            return;
+        }
+        send(exchange, 201, session.id + "\n");
+    }
+
+    // The reply is sent by the engine which searched the move, after this returns
+    private void bot(HttpExchange exchange, Session session) throws IOException {
+        long milliseconds = botMilliseconds(exchange.getRequestURI());
+        var game = session.startBotTurn();
+        try {
+            engines.search(game, milliseconds).whenComplete((uci, error) -> {
+                // Whatever fails, the exchange is answered, or at least closed, so the client never waits forever
+                try {
+                    session.finishBotTurn((error == null) ? uci : null);
+                    if (error != null) {
+                        send(exchange, 500, "The bot failed to move: " + error.getMessage());
+                    } else {
+                        send(exchange, 200, "move " + uci + "\n" + session.describe());
+                    }
+                } catch (RuntimeException e) {
+                    sendQuietly(exchange, 500, "The server failed: " + e);
+                } catch (IOException e) {
+                    // The client went away, so there is no one left to answer
+                } finally {
+                    exchange.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            session.finishBotTurn(null);
+            send(exchange, 503, "Too many bot moves are waiting");
+        }
+    }
+
+    private static long botMilliseconds(URI uri) {
+        var query = uri.getQuery();
+        if (query == null) {
+            return DEFAULT_BOT_MILLISECONDS;
+        }
+        for (var parameter : query.split("&")) {
+            if (parameter.startsWith("time=")) {
+                long milliseconds = Long.parseLong(parameter.substring("time=".length()));
+                if (milliseconds <= 0) {
+                    throw new IllegalArgumentException("The time is malformed: " + milliseconds);
+                }
+                return Math.min(milliseconds, MAX_BOT_MILLISECONDS);
+            }
+        }
+        return DEFAULT_BOT_MILLISECONDS;
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        try (var input = exchange.getRequestBody()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendQuietly(HttpExchange exchange, int status, String body) {
+        try {
+            send(exchange, status, body);
+        } catch (IOException | RuntimeException e) {
+            // The reply may already have been started, in which case closing the exchange is all that is left
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, (bytes.length == 0) ? -1 : bytes.length);
+        try (var output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package server;
+
+import backend.Game;
+import backend.Move;
+import backend.State;
+
+/**
+ * One game hosted by the server. Sessions hold no thread of their own, so an idle session costs only its position.
+ * The game is only touched while holding the session's lock, and the bot searches a copy of it so that the session
+ * can still be read while it thinks. If the server keeps a journal, every move played is recorded in it.
+ */
+final class Session {
+    final String id;
+    private final Game game;
+    // Null if the server keeps no journal
+    private final GameJournal journal;
+    private final int journalNumber;
+    private boolean isBotThinking;
+    private boolean isEnded;
+
+    Session(String id, Game game, GameJournal journal, int journalNumber) {
+        this.id = id;
+        this.game = game;
+        this.journal = journal;
+        this.journalNumber = journalNumber;
+    }
+
+    /**
+     * Describes the position, and journals the end of the game the first time it is over, so that finished games are
+     * not resumed when the server restarts.
+     *
+     * @return the position in Forsyth-Edwards Notation and its state
+     */
+    synchronized String describe() {
+        var state = game.generateMoves();
+        if (state.isTerminal()) {
+            end();
+        }
+        return "fen " + game.toFen() + "\nstate " + describe(state) + "\n";
+    }
+
+    private static String describe(State state) {
+        if (state.isTerminal()) {
+            return state.terminalType();
+        }
+        return state.isCheck() ? "check" : "normal";
+    }
+
+    /**
+     * Plays a move for the user.
+     *
+     * @param uci the move in long algebraic notation
+     * @throws IllegalArgumentException if the move is malformed or illegal
+     * @throws IllegalStateException    if the game is over or the bot is thinking
+     */
+    synchronized void play(String uci) {
+        checkPlayable();
+        perform(game.fromUci(uci));
+    }
+
+    /**
+     * Claims the turn for the bot, so that no other move can be played until it has moved.
+     *
+     * @return a copy of the game for the bot to search
+     * @throws IllegalStateException if the game is over or the bot is already thinking
+     */
+    synchronized Game startBotTurn() {
+        checkPlayable();
+        isBotThinking = true;
+        return game.copy();
+    }
+
+    /**
+     * Plays the move the bot chose on a copy of the game, and hands the turn back.
+     *
+     * @param uci the move, or null if the bot did not move
+     */
+    synchronized void finishBotTurn(String uci) {
+        isBotThinking = false;
+        if (uci != null) {
+            perform(game.fromUci(uci));
+        }
+    }
+
+    // Journalled first, so that a journal which cannot be written leaves the game as the journal has it
+    private void perform(Move move) {
+        if (journal != null) {
+            journal.move(journalNumber, move);
+        }
+        move.perform();
+    }
+
+    synchronized void end() {
+        if (journal != null && !isEnded) {
+            journal.end(journalNumber);
+            isEnded = true;
+        }
+    }
+
+    private void checkPlayable() {
+        if (isBotThinking) {
+            throw new IllegalStateException("The bot is still thinking");
+        }
+        if (game.terminalState().isPresent()) {
+            throw new IllegalStateException("The game is over");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package tablebase;
+
+import backend.Game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Generates endgame tables by retrograde analysis. Every position of the material is set up once, and the positions
+ * its legal moves lead to are kept. Positions which are checkmated are lost in zero plies, and then each pass finds
+ * the positions which win in one more ply, because a move leads to a position lost in one ply fewer, or which lose
+ * in one more ply, because every move leads to a position won in one ply fewer. Whatever is left once the passes stop
+ * finding positions is a draw.
+ * <p>
+ * Moves which capture or promote lead to other material, whose tables are generated first. Since every position's
+ * moves are kept in memory, tables for four pieces need a heap of several gigabytes.
+ */
+public final class Generator {
+    private static final Set<String> INSUFFICIENT_MATERIAL = Set.of("KvK", "KBvK", "KNvK");
+    private static final String PROMOTIONS = "QRBN";
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int NO_LOSS = Integer.MAX_VALUE;
+    private static final int NO_WIN = -1;
+    private static final int[] NO_SUCCESSORS = {};
+
+    private final Material material;
+    private final Tablebases smallerTables;
+    // The outcome of each position for the player to move: plies to a win, or minus one more than plies to a loss
+    private final int[] values;
+    private final int[][] successors;
+    // The best of the moves which lead to other material, whose outcomes are already known
+    private final int[] shortestLoss;
+    private final int[] longestWin;
+    private final boolean[] canDraw;
+    private int longestKnownPlies;
+
+    private Generator(Material material, Tablebases smallerTables) {
+        this.material = material;
+        this.smallerTables = smallerTables;
+        int size = material.size();
+        values = new int[size];
+        successors = new int[size][];
+        shortestLoss = new int[size];
+        longestWin = new int[size];
+        canDraw = new boolean[size];
+    }
+
+    /**
+     * Generates the table of the material, and of all the materials it can turn into, unless the directory already
+     * holds them.
+     *
+     * @param directory    the directory to write the tables to
+     * @param materialName the material, such as KRvK
+     * @throws IOException if a table cannot be read or written
+     */
+    public static void generate(Path directory, String materialName) throws IOException {
+        var material = Material.of(materialName);
+        for (var smaller : smallerMaterials(material.name)) {
+            generate(directory, smaller);
+        }
+        var file = directory.resolve(material.name + Tablebases.EXTENSION);
+        if (INSUFFICIENT_MATERIAL.contains(material.name) || Files.exists(file)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        byte[] outcomes;
+        try (var smallerTables = Tablebases.open(directory)) {
+            outcomes = new Generator(material, smallerTables).run();
+        }
+        var temporary = directory.resolve(material.name + Tablebases.EXTENSION + ".tmp");
+        Files.write(temporary, outcomes);
+        Files.move(temporary, file);
+    }
+
+    // Every material one capture or one promotion away
+    private static Set<String> smallerMaterials(String name) {
+        var smaller = new LinkedHashSet<String>();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == 'K' || c == 'v') {
+                continue;
+            }
+            smaller.add(Material.canonicalName(name.substring(0, i) + name.substring(i + 1)));
+            if (c == 'P') {
+                for (int j = 0; j < PROMOTIONS.length(); j++) {
+                    var promoted = name.substring(0, i) + PROMOTIONS.charAt(j) + name.substring(i + 1);
+                    smaller.add(Material.canonicalName(promoted));
+                }
+            }
+        }
+        return smaller;
+    }
+
+    private byte[] run() {
+        IntStream.range(0, values.length).parallel().forEach(this::setUp);
+        for (int plies = 1; ; plies++) {
+            int current = plies;
+            long found = IntStream.range(0, values.length).parallel().filter(i -> resolve(i, current)).count();
+            if (found == 0 && plies > longestKnownPlies) {
+                break;
+            }
+        }
+        var outcomes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            outcomes[i] = outcome(values[i]).encode();
+        }
+        return outcomes;
+    }
+
+    private static Outcome outcome(int value) {
+        if (value == UNKNOWN || value == 0) {
+            return Outcome.draw();
+        }
+        return (value > 0) ? Outcome.win(value) : Outcome.loss(-value - 1);
+    }
+
+    private static int value(Outcome outcome) {
+        return switch (outcome.result) {
+            case WIN -> outcome.plies;
+            case DRAW -> 0;
+            case LOSS -> -outcome.plies - 1;
+        };
+    }
+
+    private void setUp(int index) {
+        values[index] = UNKNOWN;
+        successors[index] = NO_SUCCESSORS;
+        shortestLoss[index] = NO_LOSS;
+        longestWin[index] = NO_WIN;
+        var fen = material.fen(index);
+        if (fen == null) {
+            values[index] = 0;
+            return;
+        }
+        var game = new Game(fen);
+        if (!game.isLegalPosition()) {
+            values[index] = 0;
+            return;
+        }
+        var state = game.generateMoves();
+        if (state.isTerminal()) {
+            values[index] = state.isCheckmate() ? value(Outcome.loss(0)) : 0;
+            return;
+        }
+        var moves = state.moves();
+        var internal = new int[moves.size()];
+        int internalCount = 0;
+        for (var move : moves) {
+            move.perform();
+            var squares = game.getBoard();
+            var name = Material.name(squares);
+            if (name.equals(material.name)) {
+                internal[internalCount++] = material.index(squares, game.getActivePlayer(), false);
+            } else {
+                addKnown(index, known(game, name));
+            }
+            move.undo();
+        }
+        successors[index] = Arrays.copyOf(internal, internalCount);
+    }
+
+    private Outcome known(Game game, String name) {
+        if (INSUFFICIENT_MATERIAL.contains(Material.canonicalName(name))) {
+            return Outcome.draw();
+        }
+        return smallerTables.probe(game).orElseThrow(
+                () -> new IllegalStateException("Missing the tablebase for " + Material.canonicalName(name)));
+    }
+
+    private void addKnown(int index, Outcome outcome) {
+        switch (outcome.result) {
+            case WIN -> longestWin[index] = Math.max(longestWin[index], outcome.plies);
+            case DRAW -> canDraw[index] = true;
+            case LOSS -> shortestLoss[index] = Math.min(shortestLoss[index], outcome.plies);
+        }
+        synchronized (this) {
+            longestKnownPlies = Math.max(longestKnownPlies, outcome.plies + 1);
+        }
+    }
+
+    /**
+     * Decides the position if it wins or loses in exactly the given number of plies. Positions decided during the
+     * same pass may or may not be seen, which only ever delays a decision to the pass it belongs to.
+     */
+    private boolean resolve(int index, int plies) {
+        if (values[index] != UNKNOWN) {
+            return false;
+        }
+        int loss = shortestLoss[index];
+        int win = longestWin[index];
+        boolean isAllWins = !canDraw[index];
+        for (int successor : successors[index]) {
+            int value = values[successor];
+            if (value == UNKNOWN || value == 0) {
+                isAllWins = false;
+            } else if (value < 0) {
+                loss = Math.min(loss, -value - 1);
+                isAllWins = false;
+            } else {
+                win = Math.max(win, value);
+            }
+        }
+        if (loss != NO_LOSS && loss + 1 == plies) {
+            values[index] = value(Outcome.win(plies));
+            return true;
+        }
+        if (isAllWins && win + 1 == plies) {
+            values[index] = value(Outcome.loss(plies));
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+package tablebase;
+
+import backend.Color;
+import backend.Game;
+import backend.Piece;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pieces of an endgame, named like KRvK with the white pieces first. The positions of an endgame are indexed by
+ * the player to move followed by the square of each piece in the order of the name, so every arrangement of the
+ * pieces has an index, including ones where pieces overlap which are simply never used.
+ */
+final class Material {
+    static final int SQUARE_COUNT = 64;
+    // Indices are ints, and the player to move with five pieces would already need a 32nd bit
+    static final int MAX_PIECES = 4;
+    private static final int ROW_COUNT = 8;
+    private static final String TYPE_ORDER = "KQRBNP";
+    private static final int[] TYPE_VALUES = {0, 9, 5, 3, 3, 1};
+    private static final char SEPARATOR = 'v';
+    private static final Piece.Type[] KEYED_TYPES = {
+            Piece.Type.QUEEN, Piece.Type.ROOK, Piece.Type.BISHOP, Piece.Type.KNIGHT, Piece.Type.PAWN};
+
+    final String name;
+    private final Piece[] pieces;
+
+    private Material(String name, Piece[] pieces) {
+        this.name = name;
+        this.pieces = pieces;
+    }
+
+    /**
+     * Parses a name like KQvK or KRPvKR, in which each side has exactly one king. The name is made canonical, so KvKQ
+     * gives the same material as KQvK.
+     *
+     * @param name the name of the endgame
+     * @return the material
+     * @throws IllegalArgumentException if the name is malformed or has too many pieces
+     */
+    static Material of(String name) {
+        var canonical = canonicalName(name);
+        int separator = canonical.indexOf(SEPARATOR);
+        var white = canonical.substring(0, separator);
+        var black = canonical.substring(separator + 1);
+        if (white.lastIndexOf('K') != 0 || black.lastIndexOf('K') != 0) {
+            throw new IllegalArgumentException("The material is malformed: each side needs one king in " + name);
+        }
+        if (white.length() + black.length() > MAX_PIECES) {
+            throw new IllegalArgumentException("The material has more than " + MAX_PIECES + " pieces: " + name);
+        }
+        var pieces = new ArrayList<Piece>();
+        addPieces(pieces, white, Color.WHITE);
+        addPieces(pieces, black, Color.BLACK);
+        return new Material(canonical, pieces.toArray(new Piece[0]));
+    }
+
+    /**
+     * Names the material on a board as it stands, with the white pieces first.
+     *
+     * @param squares the board
+     * @return the name of the material
+     */
+    static String name(Piece[][] squares) {
+        var white = new StringBuilder();
+        var black = new StringBuilder();
+        for (var row : squares) {
+            for (var piece : row) {
+                if (piece != null) {
+                    (piece.color == Color.WHITE ? white : black).append(letter(piece.type));
+                }
+            }
+        }
+        return sorted(white.toString()) + SEPARATOR + sorted(black.toString());
+    }
+
+    /**
+     * Puts the side with more material first, so that an endgame and its mirror image with the colors swapped share
+     * a name, and sorts the pieces of each side.
+     *
+     * @param name the name of the endgame
+     * @return the canonical name of the endgame
+     */
+    static String canonicalName(String name) {
+        int separator = name.indexOf(SEPARATOR);
+        if (separator < 0 || separator != name.lastIndexOf(SEPARATOR)) {
+            throw new IllegalArgumentException("The material is malformed: " + name);
+        }
+        var white = sorted(name.substring(0, separator));
+        var black = sorted(name.substring(separator + 1));
+        return isStronger(black, white) ? black + SEPARATOR + white : white + SEPARATOR + black;
+    }
+
+    // The side with more material, or with the pieces that sort first if both have as much, is the stronger side
+    private static boolean isStronger(String side, String other) {
+        int sideValue = value(side);
+        int otherValue = value(other);
+        if (sideValue != otherValue) {
+            return sideValue > otherValue;
+        }
+        return compare(side, other) < 0;
+    }
+
+    private static int compare(String side, String other) {
+        for (int i = 0; i < Math.min(side.length(), other.length()); i++) {
+            int difference = TYPE_ORDER.indexOf(side.charAt(i)) - TYPE_ORDER.indexOf(other.charAt(i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return other.length() - side.length();
+    }
+
+    private static int value(String side) {
+        int value = 0;
+        for (int i = 0; i < side.length(); i++) {
+            value += TYPE_VALUES[TYPE_ORDER.indexOf(side.charAt(i))];
+        }
+        return value;
+    }
+
+    private static String sorted(String side) {
+        var letters = new StringBuilder();
+        for (int i = 0; i < TYPE_ORDER.length(); i++) {
+            char letter = TYPE_ORDER.charAt(i);
+            for (int j = 0; j < side.length(); j++) {
+                char c = side.charAt(j);
+                if (TYPE_ORDER.indexOf(c) < 0) {
+                    throw new IllegalArgumentException("The material is malformed: invalid piece letter " + c);
+                }
+                if (c == letter) {
+                    letters.append(c);
+                }
+            }
+        }
+        return letters.toString();
+    }
+
+    private static void addPieces(List<Piece> pieces, String side, Color color) {
+        for (int i = 0; i < side.length(); i++) {
+            pieces.add(Piece.of(type(side.charAt(i)), color));
+        }
+    }
+
+    private static char letter(Piece.Type type) {
+        return switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case PAWN -> 'P';
+        };
+    }
+
+    private static Piece.Type type(char letter) {
+        return switch (letter) {
+            case 'K' -> Piece.Type.KING;
+            case 'Q' -> Piece.Type.QUEEN;
+            case 'R' -> Piece.Type.ROOK;
+            case 'B' -> Piece.Type.BISHOP;
+            case 'N' -> Piece.Type.KNIGHT;
+            default -> Piece.Type.PAWN;
+        };
+    }
+
+    /**
+     * Keys a material by how many of each piece other than the kings it has, so that a position's material can be
+     * found from the board's piece counts without naming it. With at most MAX_PIECES pieces, no count reaches
+     * MAX_PIECES, so each count is a digit in base MAX_PIECES.
+     *
+     * @param game the position
+     * @return the key of the position's material, which only matches a table if it has at most MAX_PIECES pieces
+     */
+    static int key(Game game) {
+        int key = 0;
+        for (var color : Color.values()) {
+            for (var type : KEYED_TYPES) {
+                key = key * MAX_PIECES + game.pieceCount(Piece.of(type, color));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Keys this material as key does a position holding it.
+     *
+     * @param isSwapped if the colors of the pieces are swapped
+     * @return the key of the material
+     */
+    int key(boolean isSwapped) {
+        int key = 0;
+        for (var color : Color.values()) {
+            for (var type : KEYED_TYPES) {
+                int count = 0;
+                for (var piece : pieces) {
+                    if (piece.type == type && (piece.color == color) != isSwapped) {
+                        count++;
+                    }
+                }
+                key = key * MAX_PIECES + count;
+            }
+        }
+        return key;
+    }
+
+    int pieceCount() {
+        return pieces.length;
+    }
+
+    // Both players to move, times every square for every piece
+    int size() {
+        int size = Color.values().length;
+        for (int i = 0; i < pieces.length; i++) {
+            size *= SQUARE_COUNT;
+        }
+        return size;
+    }
+
+    /**
+     * Indexes a position of this material. If the colors are swapped, the board is read upside down with the colors
+     * of the pieces and the player to move swapped, so that black having the extra material uses the same table.
+     *
+     * @param squares      the board, which must hold exactly this material, possibly with the colors swapped
+     * @param activePlayer the player to move
+     * @param isSwapped    if the colors are swapped
+     * @return the index of the position
+     */
+    int index(Piece[][] squares, Color activePlayer, boolean isSwapped) {
+        var used = new boolean[SQUARE_COUNT];
+        var player = isSwapped ? activePlayer.next() : activePlayer;
+        int index = player.ordinal();
+        for (var piece : pieces) {
+            var wanted = isSwapped ? Piece.of(piece.type, piece.color.next()) : piece;
+            int square = find(squares, wanted, used, isSwapped);
+            used[square] = true;
+            index = index * SQUARE_COUNT + square;
+        }
+        return index;
+    }
+
+    private static int find(Piece[][] squares, Piece wanted, boolean[] used, boolean isSwapped) {
+        for (int i = 0; i < ROW_COUNT; i++) {
+            for (int j = 0; j < ROW_COUNT; j++) {
+                int row = isSwapped ? ROW_COUNT - 1 - i : i;
+                int square = row * ROW_COUNT + j;
+                if (squares[i][j] == wanted && !used[square]) {
+                    return square;
+                }
+            }
+        }
+        throw new IllegalArgumentException("The board does not hold the material");
+    }
+
+    /**
+     * Sets up the position of an index, as long as no two pieces share a square and no pawn is on the first or last
+     * rank. Neither player can castle or capture en passant.
+     *
+     * @param index the index of the position
+     * @return the position in Forsyth-Edwards Notation, or null if the index is not a position
+     */
+    String fen(int index) {
+        var board = new Piece[SQUARE_COUNT];
+        for (int i = pieces.length - 1; i >= 0; i--) {
+            int square = index % SQUARE_COUNT;
+            index /= SQUARE_COUNT;
+            int row = square / ROW_COUNT;
+            boolean isBackRank = row == 0 || row == ROW_COUNT - 1;
+            if (board[square] != null || (pieces[i].type == Piece.Type.PAWN && isBackRank)) {
+                return null;
+            }
+            board[square] = pieces[i];
+        }
+        var fen = new StringBuilder();
+        for (int row = 0; row < ROW_COUNT; row++) {
+            int empty = 0;
+            for (int column = 0; column < ROW_COUNT; column++) {
+                var piece = board[row * ROW_COUNT + column];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = letter(piece.type);
+                fen.append(piece.color == Color.WHITE ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < ROW_COUNT - 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(index == Color.WHITE.ordinal() ? " w" : " b").append(" - - 0 1");
+        return fen.toString();
+    }
+}
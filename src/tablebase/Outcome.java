@@ -0,0 +1,66 @@
+package tablebase;
+
+public final class Outcome {
+    public enum Result {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    // A draw is stored as zero, wins as positive values and losses as negative values, counted in full moves
+    private static final byte DRAW_CODE = 0;
+
+    public final Result result;
+    public final int plies;
+
+    private Outcome(Result result, int plies) {
+        this.result = result;
+        this.plies = plies;
+    }
+
+    static Outcome win(int plies) {
+        return new Outcome(Result.WIN, plies);
+    }
+
+    static Outcome draw() {
+        return new Outcome(Result.DRAW, 0);
+    }
+
+    static Outcome loss(int plies) {
+        return new Outcome(Result.LOSS, plies);
+    }
+
+    /**
+     * Wins always take an odd number of plies and losses an even number, so storing full moves loses nothing and
+     * fits mates of up to 127 moves into a byte.
+     *
+     * @param code the stored byte
+     * @return the outcome for the player to move
+     */
+    static Outcome decode(byte code) {
+        if (code > DRAW_CODE) {
+            return win(2 * code - 1);
+        }
+        if (code < DRAW_CODE) {
+            return loss(2 * (-code - 1));
+        }
+        return draw();
+    }
+
+    byte encode() {
+        int code = switch (result) {
+            case WIN -> (plies + 1) / 2;
+            case DRAW -> DRAW_CODE;
+            case LOSS -> -(plies / 2) - 1;
+        };
+        if (code > Byte.MAX_VALUE || code < Byte.MIN_VALUE) {
+            throw new IllegalStateException("The mate is too long to store: " + this);
+        }
+        return (byte) code;
+    }
+
+    @Override
+    public String toString() {
+        return (result == Result.DRAW) ? "draw" : result.name().toLowerCase() + " in " + plies + " plies";
+    }
+}
@@ -0,0 +1,142 @@
+package tablebase;
+
+import backend.Color;
+import backend.Game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The endgame tables of a directory, each of which is a file named after its material, such as KRvK.tb, holding one
+ * byte per position index. The files are memory mapped, so a probe reads a single byte.
+ */
+public final class Tablebases implements Closeable {
+    static final String EXTENSION = ".tb";
+
+    private static final class Table {
+        private final Material material;
+        private final ByteBuffer outcomes;
+
+        private Table(Material material, ByteBuffer outcomes) {
+            this.material = material;
+            this.outcomes = outcomes;
+        }
+    }
+
+    private final Map<String, Table> tables = new HashMap<>();
+    private final List<FileChannel> channels = new ArrayList<>();
+    private int maxPieces;
+    // Sorted material keys, with the table of each and whether it holds the material with the colors swapped
+    private int[] keys = new int[0];
+    private Table[] keyedTables = new Table[0];
+    private boolean[] isKeySwapped = new boolean[0];
+
+    private Tablebases() {
+    }
+
+    /**
+     * Maps every table in a directory into memory, read only.
+     *
+     * @param directory the directory holding the tables
+     * @return the tables, which may be none at all
+     * @throws IOException if a table cannot be mapped, or does not have the size its material needs
+     */
+    public static Tablebases open(Path directory) throws IOException {
+        var tablebases = new Tablebases();
+        try (var files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (var file : files) {
+                var fileName = file.getFileName().toString();
+                tablebases.add(file, Material.of(fileName.substring(0, fileName.length() - EXTENSION.length())));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            tablebases.close();
+            throw (e instanceof IOException io) ? io : new IOException(e.getMessage(), e);
+        }
+        tablebases.indexKeys();
+        return tablebases;
+    }
+
+    // A material and its mirror image share a table, so each table is keyed both ways unless they are the same
+    private void indexKeys() {
+        var keyed = new TreeMap<Integer, Table>();
+        var swapped = new HashMap<Integer, Boolean>();
+        for (var table : tables.values()) {
+            int key = table.material.key(false);
+            int swappedKey = table.material.key(true);
+            keyed.put(key, table);
+            swapped.put(key, false);
+            if (swappedKey != key) {
+                keyed.put(swappedKey, table);
+                swapped.put(swappedKey, true);
+            }
+        }
+        keys = new int[keyed.size()];
+        keyedTables = new Table[keyed.size()];
+        isKeySwapped = new boolean[keyed.size()];
+        int i = 0;
+        for (var entry : keyed.entrySet()) {
+            keys[i] = entry.getKey();
+            keyedTables[i] = entry.getValue();
+            isKeySwapped[i] = swapped.get(entry.getKey());
+            i++;
+        }
+    }
+
+    private void add(Path file, Material material) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ);
+        channels.add(channel);
+        if (channel.size() != material.size()) {
+            throw new IOException("The tablebase is malformed: " + file);
+        }
+        tables.put(material.name, new Table(material, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+        maxPieces = Math.max(maxPieces, material.pieceCount());
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var channel : channels) {
+            channel.close();
+        }
+    }
+
+    boolean contains(String materialName) {
+        return tables.containsKey(Material.canonicalName(materialName));
+    }
+
+    /**
+     * Looks up the position if there is a table for its material. The tables assume that neither player can castle
+     * or capture en passant, so positions where one can are not looked up.
+     *
+     * @param game the position to look up
+     * @return how the game ends for the player to move with perfect play, or empty if there is no table for it
+     */
+    public Optional<Outcome> probe(Game game) {
+        if (maxPieces == 0 || game.getEnPassantTarget().isPresent()
+                || game.castleOpportunities(Color.WHITE) + game.castleOpportunities(Color.BLACK) > 0) {
+            return Optional.empty();
+        }
+        // Most positions have too many pieces, which the board's counters tell without looking at the squares
+        if (game.pieceCount() > maxPieces) {
+            return Optional.empty();
+        }
+        int found = Arrays.binarySearch(keys, Material.key(game));
+        if (found < 0) {
+            return Optional.empty();
+        }
+        var table = keyedTables[found];
+        int index = table.material.index(game.getBoard(), game.getActivePlayer(), isKeySwapped[found]);
+        return Optional.of(Outcome.decode(table.outcomes.get(index)));
+    }
+}
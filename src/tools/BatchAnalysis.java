@@ -0,0 +1,208 @@
+package tools;
+
+import backend.Game;
+import backend.Move;
+import bot.Analysis;
+import bot.BotTurn;
+import bot.Network;
+import bot.SearchListener;
+import bot.SearchLimits;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Analyses every position of an EPD or FEN file, one position per line, on a fixed pool of workers. Each worker
+ * builds its own game from the line it was given, so the searches share nothing but the output.
+ */
+public final class BatchAnalysis {
+    private static final String USAGE = "Usage: BatchAnalysis <positions file> [--depth plies | --time milliseconds]"
+            + " [--lines count] [--threads count] [--ordered] [--output file] [--statistics] [--network file]";
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int QUEUED_POSITIONS_PER_THREAD = 4;
+    private static final double NANO_SECONDS_PER_SECOND = 1_000_000_000.0;
+
+    private final SearchLimits limits;
+    private final int lines;
+    private final int threads;
+    private final boolean isOrdered;
+    private final Writer output;
+    private final Map<Long, String> pending = new HashMap<>();
+    private long nextToWrite;
+
+    private BatchAnalysis(SearchLimits limits, int lines, int threads, boolean isOrdered, Writer output) {
+        this.limits = limits;
+        this.lines = lines;
+        this.threads = threads;
+        this.isOrdered = isOrdered;
+        this.output = output;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path input = null;
+        Path outputFile = null;
+        var limits = SearchLimits.depth(DEFAULT_DEPTH);
+        int lines = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean isOrdered = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--depth" -> limits = SearchLimits.depth(Integer.parseInt(args[++i]));
+                    case "--time" -> limits = SearchLimits.time(Long.parseLong(args[++i]));
+                    case "--lines" -> lines = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--ordered" -> isOrdered = true;
+                    case "--output" -> outputFile = Path.of(args[++i]);
+                    case "--network" -> BotTurn.useNetwork(Network.load(Path.of(args[++i])));
+                    case "--statistics" -> BotTurn.useSearchListener(SearchListener.printing(System.err));
+                    default -> input = Path.of(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            input = null;
+        }
+        if (input == null || lines < 1 || threads < 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        var writer = (outputFile == null)
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(outputFile);
+        try (var reader = Files.newBufferedReader(input); writer) {
+            var batch = new BatchAnalysis(limits, lines, threads, isOrdered, writer);
+            var startTime = System.nanoTime();
+            long count = batch.run(reader);
+            double seconds = (System.nanoTime() - startTime) / NANO_SECONDS_PER_SECOND;
+            System.err.printf("Analysed %d positions in %.1f seconds (%.1f positions/second)%n",
+                    count, seconds, count / seconds);
+        }
+    }
+
+    private long run(BufferedReader reader) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Bounding the queued positions streams the file rather than reading all of it into the queue
+        var queued = new Semaphore(threads * QUEUED_POSITIONS_PER_THREAD);
+        long index = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                long lineIndex = index++;
+                var text = line;
+                queued.acquire();
+                workers.execute(() -> {
+                    try {
+                        write(lineIndex, analyseSafely(lineIndex, text));
+                    } finally {
+                        queued.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return index;
+    }
+
+    // Every index must be written, or ordered output would wait for it forever
+    private String analyseSafely(long index, String line) {
+        try {
+            return analyse(index, line);
+        } catch (RuntimeException e) {
+            return index + " error " + e;
+        }
+    }
+
+    private String analyse(long index, String line) {
+        var fields = line.trim().split("\\s+");
+        if (fields.length < 4) {
+            return index + " error not enough fields";
+        }
+        var fen = fen(fields);
+        var id = isFen(fields) ? Optional.<String>empty() : epdId(line);
+        var prefix = index + id.map(s -> " id " + s).orElse("");
+        List<Analysis> analyses;
+        try {
+            analyses = BotTurn.analyse(new Game(fen), limits, lines);
+        } catch (IllegalArgumentException e) {
+            return prefix + " error " + e.getMessage();
+        }
+        if (analyses.isEmpty()) {
+            return prefix + " bestmove none";
+        }
+        var results = new StringJoiner(System.lineSeparator());
+        for (int i = 0; i < analyses.size(); i++) {
+            var result = analyses.get(i);
+            var multiPv = (lines == 1) ? "" : " multipv " + (i + 1);
+            var pv = result.line.stream().map(Move::toUci).collect(Collectors.joining(" "));
+            results.add(prefix + multiPv + " bestmove " + result.move.toUci() + " score " + result.evaluation
+                    + " depth " + result.depth + " nodes " + result.nodes + " pv " + pv);
+        }
+        return results.toString();
+    }
+
+    // The move counters only come after the first four fields in FEN, while EPD has operations such as an id there
+    static boolean isFen(String[] fields) {
+        return fields.length == 6 && isNumber(fields[4]) && isNumber(fields[5]);
+    }
+
+    static String fen(String[] fields) {
+        var fen = String.join(" ", fields[0], fields[1], fields[2], fields[3]);
+        return isFen(fields) ? fen + " " + fields[4] + " " + fields[5] : fen;
+    }
+
+    private static boolean isNumber(String field) {
+        return !field.isEmpty() && field.chars().allMatch(Character::isDigit);
+    }
+
+    private static Optional<String> epdId(String line) {
+        int start = line.indexOf("id \"");
+        if (start < 0) {
+            return Optional.empty();
+        }
+        int end = line.indexOf('"', start + 4);
+        if (end < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(line.substring(start + 4, end));
+    }
+
+    private synchronized void write(long index, String result) {
+        try {
+            if (!isOrdered) {
+                output.write(result);
+                output.write(System.lineSeparator());
+                return;
+            }
+            pending.put(index, result);
+            while (pending.containsKey(nextToWrite)) {
+                output.write(pending.remove(nextToWrite));
+                output.write(System.lineSeparator());
+                nextToWrite++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package tools;
+
+import backend.PolyglotKey;
+import bot.OpeningBook;
+import pgn.PgnGame;
+import pgn.PgnReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a Polyglot opening book from PGN games. Each move played within the first plies of a game is weighted by how
+ * many games played it from the same position.
+ */
+public final class BookBuilder {
+    private static final String USAGE = "Usage: BookBuilder <pgn files> --output file [--plies count]"
+            + " [--min-games count]";
+    private static final int DEFAULT_PLIES = 20;
+    private static final int DEFAULT_MIN_GAMES = 1;
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int plies;
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+
+    private BookBuilder(int plies) {
+        this.plies = plies;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var inputs = new ArrayList<Path>();
+        Path output = null;
+        int plies = DEFAULT_PLIES;
+        int minGames = DEFAULT_MIN_GAMES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--output" -> output = Path.of(args[++i]);
+                    case "--plies" -> plies = Integer.parseInt(args[++i]);
+                    case "--min-games" -> minGames = Integer.parseInt(args[++i]);
+                    default -> inputs.add(Path.of(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            output = null;
+        }
+        if (inputs.isEmpty() || output == null || plies < 1 || minGames < 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        var builder = new BookBuilder(plies);
+        long games = 0;
+        for (var input : inputs) {
+            try (var stream = PgnReader.games(input, false)) {
+                for (var game : (Iterable<PgnGame>) stream::iterator) {
+                    builder.add(game);
+                    games++;
+                }
+            }
+        }
+        int entries = builder.write(output, minGames);
+        System.err.printf("Wrote %d entries from %d games%n", entries, games);
+    }
+
+    // Undoing the moves from the last one back walks through every position the game passed through
+    private void add(PgnGame game) {
+        var moves = game.moves();
+        for (int i = moves.size() - 1; i >= 0; i--) {
+            var move = moves.get(i);
+            move.undo();
+            if (i < plies) {
+                int encoded = OpeningBook.encode(game.game(), move);
+                counts.computeIfAbsent(PolyglotKey.of(game.game()), key -> new HashMap<>())
+                        .merge(encoded, 1, Integer::sum);
+            }
+        }
+    }
+
+    private int write(Path path, int minGames) throws IOException {
+        var keys = new ArrayList<>(counts.keySet());
+        keys.sort(Long::compareUnsigned);
+        int entries = 0;
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (long key : keys) {
+                List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(counts.get(key).entrySet());
+                moves.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed());
+                for (var move : moves) {
+                    if (move.getValue() < minGames) {
+                        continue;
+                    }
+                    output.writeLong(key);
+                    output.writeShort(move.getKey());
+                    output.writeShort(Math.min(move.getValue(), MAX_WEIGHT));
+                    output.writeInt(0);
+                    entries++;
+                }
+            }
+        }
+        return entries;
+    }
+}
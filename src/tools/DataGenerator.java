@@ -0,0 +1,204 @@
+package tools;
+
+import backend.Color;
+import backend.Game;
+import backend.PackedPosition;
+import bot.BotTurn;
+import bot.SearchLimits;
+import bot.TuningSet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates training data by self-play: games start with a few random moves, are played on with shallow searches,
+ * and positions after the random moves are written along with their search score and the result of their game.
+ * Consecutive positions of a game are much alike, so only a sample of them is written, and positions where the player
+ * to move is in check or can capture are left out like TuningSet does, since their score depends on what the shallow
+ * search happened to resolve.
+ * <p>
+ * Each record is RECORD_SIZE bytes, all big-endian: the position as encoded by PackedPosition, then a short for the
+ * score from the player to move's point of view, and a byte for the result in half points for white.
+ */
+public final class DataGenerator {
+    private static final String USAGE = "Usage: DataGenerator --output file --positions count [--nodes count]"
+            + " [--random-plies count] [--sample-rate fraction] [--threads count]";
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    static final int RECORD_SIZE = PackedPosition.SIZE + Short.BYTES + Byte.BYTES;
+    private static final int DEFAULT_NODES = 2_000;
+    private static final int DEFAULT_RANDOM_PLIES = 8;
+    private static final double DEFAULT_SAMPLE_RATE = 0.25;
+    private static final int MAX_PLIES = 400;
+    // Large enough to take a whole game, so a game's positions are always written together
+    private static final int BUFFER_RECORDS = 4 * MAX_PLIES;
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+    private static final int LOSS = 0;
+    private static final double NANO_SECONDS_PER_SECOND = 1_000_000_000.0;
+
+    private final FileChannel output;
+    private final SearchLimits limits;
+    private final int randomPlies;
+    private final double sampleRate;
+    private final long targetPositions;
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong games = new AtomicLong();
+    // Stops the other workers once one has failed, since the output is then incomplete anyway
+    private volatile boolean isFailed;
+
+    private DataGenerator(FileChannel output, SearchLimits limits, int randomPlies, double sampleRate,
+                          long targetPositions) {
+        this.output = output;
+        this.limits = limits;
+        this.randomPlies = randomPlies;
+        this.sampleRate = sampleRate;
+        this.targetPositions = targetPositions;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path outputFile = null;
+        long targetPositions = 0;
+        int nodes = DEFAULT_NODES;
+        int randomPlies = DEFAULT_RANDOM_PLIES;
+        double sampleRate = DEFAULT_SAMPLE_RATE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--output" -> outputFile = Path.of(args[++i]);
+                    case "--positions" -> targetPositions = Long.parseLong(args[++i]);
+                    case "--nodes" -> nodes = Integer.parseInt(args[++i]);
+                    case "--random-plies" -> randomPlies = Integer.parseInt(args[++i]);
+                    case "--sample-rate" -> sampleRate = Double.parseDouble(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            outputFile = null;
+        }
+        if (outputFile == null || targetPositions < 1 || nodes < 1 || randomPlies < 0 || !(sampleRate > 0)
+                || sampleRate > 1 || threads < 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        var startTime = System.nanoTime();
+        // Appending lets several runs add to the same file
+        try (var channel = FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            var generator = new DataGenerator(channel, SearchLimits.nodes(nodes), randomPlies, sampleRate,
+                    targetPositions);
+            try {
+                generator.run(threads);
+            } catch (ExecutionException e) {
+                System.err.println("Generating failed after " + generator.positions.get() + " positions: "
+                        + e.getCause());
+                System.exit(1);
+            }
+            double seconds = (System.nanoTime() - startTime) / NANO_SECONDS_PER_SECOND;
+            System.err.printf("Wrote %d positions from %d games in %.1f seconds (%.1f positions/second)%n",
+                    generator.positions.get(), generator.games.get(), seconds, generator.positions.get() / seconds);
+        }
+    }
+
+    // A worker which fails ends with its exception in its future, which is rethrown once every worker has stopped
+    private void run(int threads) throws InterruptedException, ExecutionException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        var futures = new ArrayList<Future<?>>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(workers.submit(this::work));
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        for (var future : futures) {
+            future.get();
+        }
+    }
+
+    // Each worker fills its own buffer, so workers only meet when a full buffer is written
+    private void work() {
+        var buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE);
+        try {
+            while (positions.get() < targetPositions && !isFailed) {
+                if (buffer.remaining() < MAX_PLIES * RECORD_SIZE) {
+                    flush(buffer);
+                }
+                int written = play(buffer);
+                positions.addAndGet(written);
+                games.incrementAndGet();
+            }
+            flush(buffer);
+        } catch (IOException e) {
+            isFailed = true;
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            isFailed = true;
+            throw e;
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Plays one game and writes a sample of its quiet positions, which are all given the result once it is known. The
+     * game ends when the rules end it, including by threefold repetition, and is drawn if it goes on for too long.
+     *
+     * @return how many positions were written
+     */
+    private int play(ByteBuffer buffer) {
+        var game = new Game(START_FEN);
+        var random = ThreadLocalRandom.current();
+        for (int ply = 0; ply < randomPlies; ply++) {
+            var state = game.generateMoves();
+            if (state.isTerminal()) {
+                return 0;
+            }
+            state.moves().get(random.nextInt(state.moves().size())).perform();
+        }
+        int start = buffer.position();
+        int result = DRAW;
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            var state = game.generateMoves();
+            if (state.isTerminal()) {
+                if (state.isCheckmate()) {
+                    result = (game.getActivePlayer() == Color.WHITE) ? LOSS : WIN;
+                }
+                break;
+            }
+            var analysis = BotTurn.analyse(game, limits).orElseThrow();
+            if (random.nextDouble() < sampleRate && TuningSet.isQuiet(game)) {
+                write(buffer, game, analysis.evaluation);
+            }
+            analysis.move.perform();
+        }
+        int end = buffer.position();
+        for (int record = start; record < end; record += RECORD_SIZE) {
+            buffer.put(record + RECORD_SIZE - 1, (byte) result);
+        }
+        return (end - start) / RECORD_SIZE;
+    }
+
+    private static void write(ByteBuffer buffer, Game game, int evaluation) {
+        PackedPosition.encode(game, buffer);
+        buffer.putShort((short) Math.max(Short.MIN_VALUE + 1, Math.min(Short.MAX_VALUE, evaluation)));
+        buffer.put((byte) 0);
+    }
+}
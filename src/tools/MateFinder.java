@@ -0,0 +1,40 @@
+package tools;
+
+import backend.Game;
+import bot.MateSearch;
+
+/**
+ * Looks for the shortest forced mate in a position, for answering mate in N puzzles.
+ */
+public final class MateFinder {
+    private static final String USAGE = "Usage: MateFinder <fen> <max moves> [--nodes count] [--checks-only]";
+    private static final int DEFAULT_MAX_NODES = 2_000_000;
+
+    private MateFinder() {
+    }
+
+    public static void main(String[] args) {
+        try {
+            var game = new Game(args[0]);
+            int maxMoves = Integer.parseInt(args[1]);
+            int maxNodes = DEFAULT_MAX_NODES;
+            boolean isChecksOnly = false;
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--nodes" -> maxNodes = Integer.parseInt(args[++i]);
+                    case "--checks-only" -> isChecksOnly = true;
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            var mate = MateSearch.find(game, maxMoves, maxNodes, isChecksOnly);
+            System.out.println(switch (mate.result) {
+                case MATE -> mate.toString();
+                case NO_MATE -> "no mate within " + maxMoves;
+                case OUT_OF_NODES -> "gave up after " + maxNodes + " nodes";
+            });
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+    }
+}
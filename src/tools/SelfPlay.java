@@ -0,0 +1,244 @@
+package tools;
+
+import backend.Color;
+import backend.Game;
+import backend.Move;
+import bot.BotTurn;
+import bot.EngineSettings;
+import bot.Network;
+import bot.OpeningBook;
+import bot.SearchLimits;
+import tablebase.Tablebases;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays two engine configurations against each other on a fixed pool of workers until a sequential probability ratio
+ * test decides whether the first is stronger, or the games run out. Each configuration is its search limits together
+ * with its own network, opening book, and endgame tables, so changes to any of them can be measured, and it is given
+ * to every search rather than set for the whole process. Every opening is played twice with the colors swapped, and
+ * each game has its own position, so games share nothing but the tally and the read-only files.
+ * <p>
+ * Openings are never played more than twice. Searches limited by depth or nodes are deterministic, so playing an
+ * opening again would replay the very same games, and the test would count their results as new samples. At most
+ * two games per opening are played, however many games are asked for.
+ */
+public final class SelfPlay {
+    private static final String USAGE = "Usage: SelfPlay <openings file> --first limits --second limits"
+            + " [--first-network file] [--second-network file] [--first-book file] [--second-book file]"
+            + " [--first-tablebases directory] [--second-tablebases directory]"
+            + " [--games count] [--threads count] [--elo0 elo] [--elo1 elo] [--alpha rate] [--beta rate]"
+            + " [--max-plies count], where limits are depth=plies, nodes=count, or time=milliseconds";
+    private static final int DEFAULT_GAMES = 10_000;
+    private static final int DEFAULT_MAX_PLIES = 300;
+    private static final int QUEUED_GAMES_PER_THREAD = 2;
+    private static final int REPORT_EVERY_GAMES = 20;
+    private static final double NANO_SECONDS_PER_MINUTE = 60_000_000_000.0;
+
+    private final SearchLimits first;
+    private final SearchLimits second;
+    private final EngineSettings firstSettings;
+    private final EngineSettings secondSettings;
+    private final int maxPlies;
+    private final Sprt sprt;
+    private long wins;
+    private long draws;
+    private long losses;
+    private volatile Sprt.Decision decision = Sprt.Decision.UNDECIDED;
+
+    private SelfPlay(SearchLimits first, SearchLimits second, EngineSettings firstSettings,
+                     EngineSettings secondSettings, int maxPlies, Sprt sprt) {
+        this.first = first;
+        this.second = second;
+        this.firstSettings = firstSettings;
+        this.secondSettings = secondSettings;
+        this.maxPlies = maxPlies;
+        this.sprt = sprt;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path input = null;
+        SearchLimits first = null;
+        SearchLimits second = null;
+        // Indexed by the option's name, such as first-network, and read once the arguments are known to be valid
+        var files = new HashMap<String, Path>();
+        int games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxPlies = DEFAULT_MAX_PLIES;
+        double elo0 = 0;
+        double elo1 = 5;
+        double alpha = 0.05;
+        double beta = 0.05;
+        Sprt sprt = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--first" -> first = limits(args[++i]);
+                    case "--second" -> second = limits(args[++i]);
+                    case "--first-network", "--second-network", "--first-book", "--second-book",
+                            "--first-tablebases", "--second-tablebases" -> {
+                        var option = args[i].substring(2);
+                        files.put(option, Path.of(args[++i]));
+                    }
+                    case "--games" -> games = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--elo0" -> elo0 = Double.parseDouble(args[++i]);
+                    case "--elo1" -> elo1 = Double.parseDouble(args[++i]);
+                    case "--alpha" -> alpha = Double.parseDouble(args[++i]);
+                    case "--beta" -> beta = Double.parseDouble(args[++i]);
+                    case "--max-plies" -> maxPlies = Integer.parseInt(args[++i]);
+                    default -> input = Path.of(args[i]);
+                }
+            }
+            sprt = new Sprt(elo0, elo1, alpha, beta);
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            input = null;
+        }
+        if (input == null || first == null || second == null || games < 1 || threads < 1 || maxPlies < 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        var openings = openings(input);
+        if (openings.isEmpty()) {
+            System.err.println("There are no openings in " + input);
+            System.exit(1);
+        }
+        if (games > 2 * openings.size()) {
+            games = 2 * openings.size();
+            System.err.println("Playing only " + games + " games, two for each opening in " + input);
+        }
+        var selfPlay = new SelfPlay(first, second, settings(files, "first"), settings(files, "second"), maxPlies,
+                sprt);
+        var startTime = System.nanoTime();
+        selfPlay.run(openings, games, threads);
+        double minutes = (System.nanoTime() - startTime) / NANO_SECONDS_PER_MINUTE;
+        if (selfPlay.played() % REPORT_EVERY_GAMES != 0) {
+            selfPlay.report();
+        }
+        System.out.printf("%s after %.1f minutes (%.1f games/minute)%n", selfPlay.decision, minutes,
+                selfPlay.played() / minutes);
+    }
+
+    private static SearchLimits limits(String spec) {
+        var parts = spec.split("=", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("The limits are malformed: " + spec);
+        }
+        return switch (parts[0]) {
+            case "depth" -> SearchLimits.depth(Integer.parseInt(parts[1]));
+            case "nodes" -> SearchLimits.nodes(Long.parseLong(parts[1]));
+            case "time" -> SearchLimits.time(Long.parseLong(parts[1]));
+            default -> throw new IllegalArgumentException("The limits are malformed: " + spec);
+        };
+    }
+
+    private static EngineSettings settings(Map<String, Path> files, String side) throws IOException {
+        var network = files.get(side + "-network");
+        var tablebases = files.get(side + "-tablebases");
+        var book = files.get(side + "-book");
+        return new EngineSettings((network == null) ? null : Network.load(network),
+                (tablebases == null) ? null : Tablebases.open(tablebases),
+                (book == null) ? null : OpeningBook.open(book));
+    }
+
+    private static List<String> openings(Path input) throws IOException {
+        var openings = new ArrayList<String>();
+        for (var line : Files.readAllLines(input)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            var fields = line.trim().split("\\s+");
+            if (fields.length < 4) {
+                throw new IOException("The opening is malformed: " + line);
+            }
+            openings.add(BatchAnalysis.fen(fields));
+        }
+        return openings;
+    }
+
+    private void run(List<String> openings, int games, int threads) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Queuing only a few games per worker lets the test stop soon after it decides
+        var queued = new Semaphore(threads * QUEUED_GAMES_PER_THREAD);
+        try {
+            for (int i = 0; i < games && decision == Sprt.Decision.UNDECIDED; i++) {
+                var fen = openings.get(i / 2);
+                boolean isFirstWhite = i % 2 == 0;
+                queued.acquire();
+                workers.execute(() -> {
+                    try {
+                        record(play(fen, isFirstWhite));
+                    } finally {
+                        queued.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Plays one game, which is a draw if it lasts longer than the maximum number of plies.
+     *
+     * @return one if the first configuration won, zero for a draw, and minus one if it lost
+     */
+    private int play(String fen, boolean isFirstWhite) {
+        var game = new Game(fen);
+        for (int ply = 0; ply < maxPlies; ply++) {
+            boolean isFirstToMove = (game.getActivePlayer() == Color.WHITE) == isFirstWhite;
+            var settings = isFirstToMove ? firstSettings : secondSettings;
+            var bookMove = (settings.book == null) ? Optional.<Move>empty() : settings.book.pick(game);
+            if (bookMove.isPresent()) {
+                bookMove.get().perform();
+                continue;
+            }
+            var analysis = BotTurn.analyse(game, isFirstToMove ? first : second, settings);
+            if (analysis.isEmpty()) {
+                var state = game.generateMoves();
+                if (!state.isCheckmate()) {
+                    return 0;
+                }
+                return isFirstToMove ? -1 : 1;
+            }
+            analysis.get().move.perform();
+        }
+        return 0;
+    }
+
+    private synchronized void record(int result) {
+        switch (result) {
+            case 1 -> wins++;
+            case -1 -> losses++;
+            default -> draws++;
+        }
+        if (decision == Sprt.Decision.UNDECIDED) {
+            decision = sprt.decide(wins, draws, losses);
+        }
+        if (played() % REPORT_EVERY_GAMES == 0) {
+            report();
+        }
+    }
+
+    private synchronized long played() {
+        return wins + draws + losses;
+    }
+
+    private synchronized void report() {
+        System.out.printf("Games %d: +%d =%d -%d, Elo %.1f +/- %.1f, LLR %.2f [%.2f, %.2f]%n", played(), wins, draws,
+                losses, Sprt.elo(wins, draws, losses), Sprt.eloError(wins, draws, losses),
+                sprt.logLikelihoodRatio(wins, draws, losses), sprt.lowerBound(), sprt.upperBound());
+    }
+}
@@ -0,0 +1,130 @@
+package tools;
+
+/**
+ * A sequential probability ratio test of whether one engine is stronger than another, which decides as soon as the
+ * games played so far are enough rather than after a fixed number of games. Game results are wins, draws, and losses
+ * of the first engine, and the ratio uses a normal approximation of the score, so it needs a few dozen games before
+ * it means much.
+ */
+public final class Sprt {
+    private static final double Z_95 = 1.959964;
+    // Half a win, draw, and loss are added as a prior, so that one-sided results still have a variance
+    private static final double PRIOR_GAMES = 0.5;
+
+    public enum Decision {
+        // The first engine is at least the smaller Elo difference stronger
+        STRONGER,
+        // The first engine is no more than the larger Elo difference stronger
+        NOT_STRONGER,
+        UNDECIDED
+    }
+
+    private final double score0;
+    private final double score1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    /**
+     * Tests the hypothesis that the first engine is elo1 stronger against the hypothesis that it is only elo0
+     * stronger.
+     *
+     * @param elo0  the Elo difference of the null hypothesis, usually zero
+     * @param elo1  the Elo difference of the alternative hypothesis, which must be larger
+     * @param alpha the chance of deciding that it is stronger when it is not
+     * @param beta  the chance of deciding that it is not stronger when it is
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("The second Elo bound must be larger than the first");
+        }
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new IllegalArgumentException("The error rates must be between zero and one");
+        }
+        score0 = score(elo0);
+        score1 = score(elo1);
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    // The expected score of a player that is the given number of Elo stronger
+    private static double score(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    public double upperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Computes the log-likelihood ratio of the results, which is compared against the bounds.
+     *
+     * @return the ratio, which is zero before any game is played
+     */
+    public double logLikelihoodRatio(long wins, long draws, long losses) {
+        if (wins + draws + losses == 0) {
+            return 0;
+        }
+        double priorWins = wins + PRIOR_GAMES;
+        double priorDraws = draws + PRIOR_GAMES;
+        double priorLosses = losses + PRIOR_GAMES;
+        double games = priorWins + priorDraws + priorLosses;
+        double score = (priorWins + priorDraws / 2) / games;
+        double variance = variance(priorWins, priorDraws, priorLosses, score);
+        return games * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+    }
+
+    public Decision decide(long wins, long draws, long losses) {
+        double ratio = logLikelihoodRatio(wins, draws, losses);
+        if (ratio >= upperBound) {
+            return Decision.STRONGER;
+        }
+        if (ratio <= lowerBound) {
+            return Decision.NOT_STRONGER;
+        }
+        return Decision.UNDECIDED;
+    }
+
+    /**
+     * Estimates how many Elo stronger the first engine is from its score.
+     *
+     * @return the estimate, which is infinite if one engine won or lost every game
+     */
+    public static double elo(long wins, long draws, long losses) {
+        long games = wins + draws + losses;
+        return (games == 0) ? 0 : eloOf((wins + draws / 2.0) / games);
+    }
+
+    /**
+     * Estimates the half width of the 95% confidence interval of the Elo estimate, from the variance of the score.
+     *
+     * @return the half width, which is infinite if one engine won or lost every game
+     */
+    public static double eloError(long wins, long draws, long losses) {
+        long games = wins + draws + losses;
+        if (games == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double score = (wins + draws / 2.0) / games;
+        if (score == 0 || score == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double margin = Z_95 * Math.sqrt(variance(wins, draws, losses, score) / games);
+        double lower = Math.max(score - margin, 0);
+        double upper = Math.min(score + margin, 1);
+        return (eloOf(upper) - eloOf(lower)) / 2;
+    }
+
+    private static double eloOf(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double variance(double wins, double draws, double losses, double score) {
+        double games = wins + draws + losses;
+        return (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2))
+                / games;
+    }
+}
@@ -0,0 +1,36 @@
+package tools;
+
+import tablebase.Generator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Generates endgame tables into a directory, along with the tables of every material they can turn into.
+ */
+public final class TablebaseGenerator {
+    private static final String USAGE = "Usage: TablebaseGenerator <directory> <material> [material ...]";
+    private static final double NANO_SECONDS_PER_SECOND = 1_000_000_000.0;
+
+    private TablebaseGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        var directory = Path.of(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            var startTime = System.nanoTime();
+            try {
+                Generator.generate(directory, args[i]);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            double seconds = (System.nanoTime() - startTime) / NANO_SECONDS_PER_SECOND;
+            System.err.printf("Generated %s in %.1f seconds%n", args[i], seconds);
+        }
+    }
+}
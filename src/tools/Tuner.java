@@ -0,0 +1,67 @@
+package tools;
+
+import bot.EvaluationTuner;
+import bot.TuningSet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Tunes the evaluation on positions labelled with the results of their games, and writes the tuned weights as the
+ * Java constants they replace.
+ */
+public final class Tuner {
+    private static final String USAGE = "Usage: Tuner <labelled positions files> --output file [--epochs count]"
+            + " [--rate centipawns]";
+    private static final int DEFAULT_EPOCHS = 500;
+    private static final double DEFAULT_LEARNING_RATE = 0.5;
+    private static final int REPORT_EVERY_EPOCHS = 10;
+    private static final double NANO_SECONDS_PER_SECOND = 1_000_000_000.0;
+
+    private Tuner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        var inputs = new ArrayList<Path>();
+        Path output = null;
+        int epochs = DEFAULT_EPOCHS;
+        double learningRate = DEFAULT_LEARNING_RATE;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--output" -> output = Path.of(args[++i]);
+                    case "--epochs" -> epochs = Integer.parseInt(args[++i]);
+                    case "--rate" -> learningRate = Double.parseDouble(args[++i]);
+                    default -> inputs.add(Path.of(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            output = null;
+        }
+        if (inputs.isEmpty() || output == null || epochs < 1 || learningRate <= 0) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        var startTime = System.nanoTime();
+        var positions = TuningSet.read(inputs);
+        System.err.printf("Read %d quiet positions, skipped %d lines, in %.1f seconds%n", positions.size(),
+                positions.skipped(), (System.nanoTime() - startTime) / NANO_SECONDS_PER_SECOND);
+        if (positions.size() == 0) {
+            System.exit(1);
+        }
+        var tuner = new EvaluationTuner(positions);
+        System.err.printf("Scale %.4f, error %.6f%n", tuner.scale(), tuner.error());
+        startTime = System.nanoTime();
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            tuner.step(learningRate);
+            if (epoch % REPORT_EVERY_EPOCHS == 0 || epoch == epochs) {
+                double seconds = (System.nanoTime() - startTime) / NANO_SECONDS_PER_SECOND;
+                System.err.printf("Epoch %d, error %.6f, %.2f seconds per epoch%n", epoch, tuner.error(),
+                        seconds / epoch);
+            }
+        }
+        Files.writeString(output, tuner.toSource());
+    }
+}
@@ -0,0 +1,137 @@
+import backend.Game;
+import bot.BotTurn;
+import bot.SearchLimits;
+import bot.SearchStatistics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnalysisTest {
+    @Test
+    void findsMateInOne() {
+        var game = new Game("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        var analysis = BotTurn.analyse(game, SearchLimits.depth(2)).orElseThrow();
+        assertEquals("a1", analysis.move.start.toString());
+        assertEquals("a8", analysis.move.end.toString());
+        assertEquals(Integer.MAX_VALUE, analysis.evaluation);
+        assertEquals(2, analysis.depth);
+        assertTrue(analysis.nodes > 0);
+    }
+
+    @Test
+    void leavesGameUnchanged() {
+        var game = new Game("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        long zobristHash = game.getZobristHash();
+        BotTurn.analyse(game, SearchLimits.depth(2));
+        assertEquals(zobristHash, game.getZobristHash());
+    }
+
+    @Test
+    void multiplePrincipalVariations() {
+        var fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+        var game = new Game(fen);
+        long zobristHash = game.getZobristHash();
+        var analyses = BotTurn.analyse(game, SearchLimits.depth(3), 4);
+        assertEquals(zobristHash, game.getZobristHash());
+        assertEquals(4, analyses.size());
+        var moves = new HashSet<String>();
+        for (int i = 0; i < analyses.size(); i++) {
+            var analysis = analyses.get(i);
+            assertTrue(moves.add(analysis.move.toUci()));
+            assertEquals(3, analysis.depth);
+            assertEquals(3, analysis.line.size());
+            assertSame(analysis.move, analysis.line.get(0));
+            if (i > 0) {
+                assertTrue(analyses.get(i - 1).evaluation >= analysis.evaluation);
+            }
+        }
+        var best = BotTurn.analyse(new Game(fen), SearchLimits.depth(3)).orElseThrow();
+        assertEquals(best.evaluation, analyses.get(0).evaluation);
+    }
+
+    @Test
+    void linesAreCappedAtLegalMoves() {
+        var game = new Game("7k/8/8/8/8/8/6PP/6RK b - - 0 1");
+        var analyses = BotTurn.analyse(game, SearchLimits.depth(2), 10);
+        assertEquals(3, analyses.size());
+    }
+
+    @Test
+    void listenerSeesEveryIteration() {
+        var iterations = new ArrayList<SearchStatistics>();
+        BotTurn.useSearchListener((statistics, best) -> iterations.add(statistics));
+        try {
+            var game = new Game("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+            var analysis = BotTurn.analyse(game, SearchLimits.depth(3)).orElseThrow();
+            assertEquals(3, iterations.size());
+            long nodes = 0;
+            for (int i = 0; i < iterations.size(); i++) {
+                var statistics = iterations.get(i);
+                assertEquals(i + 1, statistics.depth);
+                assertEquals(i + 1, statistics.selectiveDepth);
+                assertTrue(statistics.isComplete);
+                assertTrue(statistics.leafNodes <= statistics.nodes);
+                assertTrue(statistics.transpositionHits <= statistics.transpositionProbes);
+                assertTrue(statistics.firstMoveCutoffs <= statistics.betaCutoffs);
+                nodes += statistics.nodes;
+            }
+            assertEquals(analysis.nodes, nodes);
+        } finally {
+            BotTurn.useSearchListener(null);
+        }
+    }
+
+    @Test
+    void flightRecorderEvents() throws IOException {
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            recording.enable("ajedrez.Search");
+            recording.enable("ajedrez.SearchIteration");
+            recording.enable("ajedrez.MoveGeneration");
+            recording.start();
+            BotTurn.analyse(new Game("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.depth(2));
+            recording.stop();
+            var file = Files.createTempFile("search", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+        var searches = events.stream().filter(e -> e.getEventType().getName().equals("ajedrez.Search")).toList();
+        assertEquals(1, searches.size());
+        assertEquals("a1a8", searches.get(0).getString("bestMove"));
+        assertEquals(2, searches.get(0).getInt("depth"));
+        assertEquals(2, events.stream().filter(e -> e.getEventType().getName().equals("ajedrez.SearchIteration"))
+                .count());
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("ajedrez.MoveGeneration")));
+    }
+
+    @Test
+    void nodeLimitIsDeterministic() {
+        var fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+        var analysis = BotTurn.analyse(new Game(fen), SearchLimits.nodes(5000)).orElseThrow();
+        assertTrue(analysis.nodes <= 5000);
+        var again = BotTurn.analyse(new Game(fen), SearchLimits.nodes(5000)).orElseThrow();
+        assertEquals(analysis.move.toUci(), again.move.toUci());
+        assertEquals(analysis.evaluation, again.evaluation);
+    }
+
+    @Test
+    void terminalPositionHasNoAnalysis() {
+        var game = new Game("6kR/6P1/5K2/8/8/8/8/8 b - - 1 1");
+        assertTrue(BotTurn.analyse(game, SearchLimits.depth(2)).isEmpty());
+    }
+}
@@ -0,0 +1,33 @@
+import backend.Game;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CopyTest {
+    @Test
+    void copyIsIndependent() {
+        var fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        var game = new Game(fen);
+        var copy = game.copy();
+        copy.fromSan("O-O").perform();
+        assertEquals(fen, game.toFen());
+        assertEquals(new Game(fen).getZobristHash(), game.getZobristHash());
+        assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R4RK1 b kq - 1 1", copy.toFen());
+        assertEquals(new Game(copy.toFen()).getZobristHash(), copy.getZobristHash());
+    }
+
+    @Test
+    void copyKeepsRepetitions() {
+        var game = new Game("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        for (var san : new String[]{"Ra2", "Kd8", "Ra1", "Ke8", "Ra2", "Kd8", "Ra1"}) {
+            game.fromSan(san).perform();
+        }
+        var copy = game.copy();
+        assertFalse(copy.generateMoves().isTerminal());
+        copy.fromSan("Ke8").perform();
+        assertTrue(copy.generateMoves().isTerminal());
+        assertFalse(game.generateMoves().isTerminal());
+    }
+}
@@ -1,6 +1,7 @@
 import backend.Game;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -70,4 +71,18 @@ public class DrawTest {
         var state = new Game("4k3/8/8/8/8/8/8/1N2K3 w - - 0 1").generateMoves();
         assertTrue(state.isTerminal());
     }
+
+    @Test
+    void draw_threefold_repetition() {
+        var game = new Game("4k3/8/8/8/8/8/8/RN2K1NR w - - 0 1");
+        var moves = new String[]{"Nc3", "Kd8", "Nb1", "Ke8", "Nc3", "Kd8", "Nb1", "Ke8"};
+        for (int i = 0; i < moves.length; i++) {
+            assertFalse(game.generateMoves().isTerminal());
+            game.fromSan(moves[i]).perform();
+            assertEquals(i >= 3, game.isRepetition());
+        }
+        var state = game.generateMoves();
+        assertTrue(state.isTerminal());
+        assertEquals("threefoldRepetition", state.terminalType());
+    }
 }
@@ -82,14 +82,14 @@ public class FenSmokeTest {
 
     @Test
     void enPassantWhite() {
-        assertEquals(6, moveCount("4k3/8/8/pP6/8/8/8/4K3 w - a6 0 1"));
-        assertEquals(7, moveCount("4k3/8/8/2PpP3/8/8/8/4K3 w - d6 0 1"));
+        assertEquals(7, moveCount("4k3/8/8/pP6/8/8/8/4K3 w - a6 0 1"));
+        assertEquals(9, moveCount("4k3/8/8/2PpP3/8/8/8/4K3 w - d6 0 1"));
     }
 
     @Test
     void enPassantBlack() {
-        assertEquals(6, moveCount("4k3/8/8/8/6pP/8/8/4K3 b - h3 0 1"));
-        assertEquals(7, moveCount("4k3/8/8/8/4pPp1/8/8/4K3 b - f3 0 1"));
+        assertEquals(7, moveCount("4k3/8/8/8/6pP/8/8/4K3 b - h3 0 1"));
+        assertEquals(9, moveCount("4k3/8/8/8/4pPp1/8/8/4K3 b - f3 0 1"));
     }
 
     @Test
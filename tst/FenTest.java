@@ -0,0 +1,60 @@
+import backend.Game;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FenTest {
+    private static void assertRoundTrip(String fen) {
+        assertEquals(fen, new Game(fen).toFen());
+    }
+
+    private static void assertMalformed(String fen) {
+        assertThrows(IllegalArgumentException.class, () -> new Game(fen));
+    }
+
+    @Test
+    void roundTrips() {
+        assertRoundTrip("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertRoundTrip("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        assertRoundTrip("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        assertRoundTrip("4k3/8/8/2PpP3/8/8/8/4K3 w - d6 0 1");
+        assertRoundTrip("4k3/8/8/8/4pPp1/8/8/4K3 b - f3 12 40");
+    }
+
+    @Test
+    void defaultsMoveCounters() {
+        var game = new Game("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -");
+        assertEquals("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", game.toFen());
+    }
+
+    @Test
+    void tracksMoves() {
+        var game = new Game("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        var e4 = game.fromSan("e4");
+        e4.perform();
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+        var nf6 = game.fromSan("Nf6");
+        nf6.perform();
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2", game.toFen());
+        game.fromSan("Ke2").perform();
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", game.toFen());
+    }
+
+    @Test
+    void rejectsMalformed() {
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNRR w KQkq - 0 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e9 0 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 101 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1");
+        assertMalformed("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra");
+        assertMalformed("8/8/8/8/8/8/8/8 w - - 0 1");
+        assertMalformed("4k3/8/8/3P4/8/8/8/4K3 w - e6 0 1");
+        assertMalformed("4k3/8/8/8/8/8/3P4/4K3 w - e3 0 1");
+    }
+}
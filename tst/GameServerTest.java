@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+import server.GameServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GameServerTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static HttpResponse<String> send(GameServer server, String method, String path, String body)
+            throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void playAgainstTheBot() throws IOException, InterruptedException {
+        try (var server = GameServer.start(0, 1, 10, 10)) {
+            var created = send(server, "POST", "/games", "");
+            assertEquals(201, created.statusCode());
+            var id = created.body().trim();
+            var played = send(server, "POST", "/games/" + id + "/moves", "e2e4");
+            assertEquals(200, played.statusCode());
+            assertTrue(played.body().contains("fen rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"));
+            var reply = send(server, "POST", "/games/" + id + "/bot?time=50", "");
+            assertEquals(200, reply.statusCode());
+            assertTrue(reply.body().startsWith("move "));
+            assertTrue(reply.body().contains(" w KQkq"));
+            assertEquals(400, send(server, "POST", "/games/" + id + "/moves", "e2e4").statusCode());
+            assertEquals(204, send(server, "DELETE", "/games/" + id, "").statusCode());
+            assertEquals(404, send(server, "GET", "/games/" + id, "").statusCode());
+        }
+    }
+
+    @Test
+    void botMatesAndGameEnds() throws IOException, InterruptedException {
+        try (var server = GameServer.start(0, 1, 10, 10)) {
+            var id = send(server, "POST", "/games", "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1").body().trim();
+            var reply = send(server, "POST", "/games/" + id + "/bot?time=200", "");
+            assertTrue(reply.body().startsWith("move a1a8\n"));
+            assertTrue(reply.body().contains("state checkmate"));
+            assertEquals(409, send(server, "POST", "/games/" + id + "/bot", "").statusCode());
+        }
+    }
+
+    @Test
+    void sessionsAreBounded() throws IOException, InterruptedException {
+        try (var server = GameServer.start(0, 1, 2, 10)) {
+            var statuses = new ArrayList<Integer>();
+            for (int i = 0; i < 3; i++) {
+                statuses.add(send(server, "POST", "/games", "").statusCode());
+            }
+            assertEquals(201, statuses.get(0));
+            assertEquals(201, statuses.get(1));
+            assertEquals(503, statuses.get(2));
+            assertEquals(400, send(server, "POST", "/games", "not a fen").statusCode());
+        }
+    }
+
+    @Test
+    void concurrentCreatesRespectTheCap() throws IOException {
+        try (var server = GameServer.start(0, 1, 5, 10)) {
+            var replies = new ArrayList<CompletableFuture<HttpResponse<String>>>();
+            for (int i = 0; i < 20; i++) {
+                var request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/games"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build();
+                replies.add(CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            long created = replies.stream().filter(reply -> reply.join().statusCode() == 201).count();
+            assertEquals(5, created);
+        }
+    }
+
+    @Test
+    void journalledGamesResume() throws IOException, InterruptedException {
+        var journal = Files.createTempDirectory("journal").resolve("games.journal");
+        String kept;
+        String ended;
+        String promoting;
+        String mated;
+        String fen;
+        try (var server = GameServer.start(0, 1, 10, 10, journal)) {
+            kept = send(server, "POST", "/games", "").body().trim();
+            ended = send(server, "POST", "/games", "").body().trim();
+            promoting = send(server, "POST", "/games", "4k3/P7/8/8/8/8/7P/4K3 w - - 0 1").body().trim();
+            for (var move : new String[]{"e2e4", "e7e5", "g1f3", "b8c6"}) {
+                send(server, "POST", "/games/" + kept + "/moves", move);
+            }
+            send(server, "POST", "/games/" + ended + "/moves", "d2d4");
+            send(server, "POST", "/games/" + promoting + "/moves", "a7a8n");
+            mated = send(server, "POST", "/games", "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1").body().trim();
+            assertTrue(send(server, "POST", "/games/" + mated + "/moves", "a1a8").body().contains("checkmate"));
+            send(server, "POST", "/games/" + kept + "/bot?time=50", "");
+            fen = send(server, "GET", "/games/" + kept, "").body();
+            assertEquals(204, send(server, "DELETE", "/games/" + ended, "").statusCode());
+        }
+        try (var server = GameServer.start(0, 1, 10, 10, journal)) {
+            assertEquals(fen, send(server, "GET", "/games/" + kept, "").body());
+            assertEquals(404, send(server, "GET", "/games/" + ended, "").statusCode());
+            assertEquals(404, send(server, "GET", "/games/" + mated, "").statusCode());
+            assertEquals(200, send(server, "POST", "/games/" + kept + "/moves", "a7a6").statusCode());
+        }
+        try (var server = GameServer.start(0, 1, 10, 10, journal)) {
+            assertTrue(send(server, "GET", "/games/" + kept, "").body().contains(" w "));
+            assertTrue(send(server, "GET", "/games/" + promoting, "").body().contains("fen N3k3/8/"));
+        }
+    }
+}
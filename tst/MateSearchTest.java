@@ -0,0 +1,71 @@
+import backend.Game;
+import bot.Mate;
+import bot.MateSearch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MateSearchTest {
+    private static final int MAX_NODES = 200_000;
+
+    @Test
+    void backRankMateInOne() {
+        var game = new Game("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        var mate = MateSearch.find(game, 3, MAX_NODES, false);
+        assertEquals(Mate.Result.MATE, mate.result);
+        assertEquals(List.of("Ra8#"), mate.line);
+    }
+
+    @Test
+    void mateInTwoNeedsAQuietMove() {
+        var fen = "7k/8/5K2/8/8/8/8/6R1 w - - 0 1";
+        var mate = MateSearch.find(new Game(fen), 3, MAX_NODES, false);
+        assertEquals(Mate.Result.MATE, mate.result);
+        assertEquals(2, mate.moves());
+        assertEquals(Mate.Result.NO_MATE, MateSearch.find(new Game(fen), 1, MAX_NODES, false).result);
+    }
+
+    @Test
+    void checksOnlyMateInThree() {
+        var game = new Game("r1b3kr/ppp1Bp1p/1b6/n2P4/2p3q1/2Q2N2/P4PPP/RN2R1K1 w - - 1 0");
+        long zobristHash = game.getZobristHash();
+        var mate = MateSearch.find(game, 3, MAX_NODES, true);
+        assertEquals(Mate.Result.MATE, mate.result);
+        assertEquals(3, mate.moves());
+        assertEquals("Qxh8+", mate.line.get(0));
+        assertEquals(zobristHash, game.getZobristHash());
+    }
+
+    @Test
+    void noMateInDrawnEndgame() {
+        var game = new Game("8/8/4k3/8/8/4K3/4P3/8 w - - 0 1");
+        assertEquals(Mate.Result.NO_MATE, MateSearch.find(game, 2, MAX_NODES, false).result);
+    }
+
+    @Test
+    void quickCheckTestKeepsEveryCheck() {
+        var fens = List.of(
+                "r1b3kr/ppp1Bp1p/1b6/n2P4/2p3q1/2Q2N2/P4PPP/RN2R1K1 w - - 1 0",
+                "4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1",
+                "8/8/8/k2pP2R/8/8/8/5K2 w - d6 0 1",
+                "3k4/1P6/8/8/8/8/8/B3K3 w - - 0 1",
+                "4k3/8/8/4N3/8/8/8/4R1K1 w - - 0 1");
+        for (var fen : fens) {
+            var game = new Game(fen);
+            int skipped = 0;
+            for (var move : game.generateMoves().moves()) {
+                boolean canCheck = game.canCheck(move);
+                move.perform();
+                assertTrue(canCheck || !game.isActivePlayerChecked(), fen + " " + move.toUci());
+                move.undo();
+                if (!canCheck) {
+                    skipped++;
+                }
+            }
+            assertTrue(skipped > 0, fen);
+        }
+    }
+}
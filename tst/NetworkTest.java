@@ -0,0 +1,99 @@
+import backend.Game;
+import bot.BotTurn;
+import bot.EngineSettings;
+import bot.Network;
+import bot.SearchLimits;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NetworkTest {
+    private static final int HIDDEN_SIZE = 16;
+    private static final int FEATURE_COUNT = 768;
+
+    private static Path writeNetwork(int hiddenWeights) throws IOException {
+        var path = Files.createTempFile("network", ".bin");
+        var random = new Random(3);
+        try (var output = new DataOutputStream(Files.newOutputStream(path))) {
+            output.writeInt(0x414A4E4E);
+            output.writeInt(HIDDEN_SIZE);
+            for (int i = 0; i < hiddenWeights; i++) {
+                output.writeShort(random.nextInt(121) - 60);
+            }
+            for (int i = 0; i < HIDDEN_SIZE; i++) {
+                output.writeShort(random.nextInt(101));
+            }
+            for (int i = 0; i < 2 * HIDDEN_SIZE; i++) {
+                output.writeShort(random.nextInt(121) - 60);
+            }
+            output.writeInt(1000);
+        }
+        return path;
+    }
+
+    @Test
+    void mirroredPositionsEvaluateTheSame() throws IOException {
+        var path = writeNetwork(FEATURE_COUNT * HIDDEN_SIZE);
+        try {
+            var network = Network.load(path);
+            var game = new Game("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            var mirrored = new Game("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1");
+            assertEquals(network.evaluate(game), network.evaluate(mirrored));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void searchWithNetwork() throws IOException {
+        var path = writeNetwork(FEATURE_COUNT * HIDDEN_SIZE);
+        try {
+            BotTurn.useNetwork(Network.load(path));
+            var game = new Game("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            long zobristHash = game.getZobristHash();
+            var analysis = BotTurn.analyse(game, SearchLimits.depth(3)).orElseThrow();
+            assertEquals("a1a8", analysis.move.toUci());
+            assertEquals(Integer.MAX_VALUE, analysis.evaluation);
+            assertEquals(zobristHash, game.getZobristHash());
+        } finally {
+            BotTurn.useNetwork(null);
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void settingsAreGivenToEachSearch() throws IOException {
+        var path = writeNetwork(FEATURE_COUNT * HIDDEN_SIZE);
+        try {
+            var network = Network.load(path);
+            var game = new Game("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            int best = -Integer.MAX_VALUE;
+            for (var move : game.generateMoves().moves()) {
+                move.perform();
+                best = Math.max(best, -network.evaluate(game));
+                move.undo();
+            }
+            var settings = new EngineSettings(network, null, null);
+            assertEquals(best, BotTurn.analyse(game, SearchLimits.depth(1), settings).orElseThrow().evaluation);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void truncatedNetworkIsRejected() throws IOException {
+        var path = writeNetwork(FEATURE_COUNT * HIDDEN_SIZE - 1);
+        try {
+            assertThrows(IOException.class, () -> Network.load(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import backend.Game;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NotationTest {
+    private static void assertRoundTrip(String fen) {
+        var game = new Game(fen);
+        var sanMoves = new HashSet<String>();
+        for (var move : game.generateMoves().moves()) {
+            var san = game.toSan(move);
+            sanMoves.add(san);
+            assertEquals(move.toUci(), game.fromSan(san).toUci());
+            assertEquals(san, game.toSan(game.fromUci(move.toUci())));
+        }
+        assertEquals(game.generateMoves().moves().size(), sanMoves.size());
+    }
+
+    @Test
+    void roundTripsEveryLegalMove() {
+        assertRoundTrip("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertRoundTrip("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        assertRoundTrip("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        assertRoundTrip("r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1");
+        assertRoundTrip("4k3/8/8/2PpP3/8/8/8/4K3 w - d6 0 1");
+    }
+
+    @Test
+    void disambiguates() {
+        var game = new Game("4k3/8/8/8/1N3N2/8/1N6/4K3 w - - 0 1");
+        assertEquals("N2d3", game.toSan(game.fromUci("b2d3")));
+        assertEquals("Nfd3", game.toSan(game.fromUci("f4d3")));
+        assertEquals("Nb4d3", game.toSan(game.fromUci("b4d3")));
+        assertEquals("Nbd5", game.toSan(game.fromUci("b4d5")));
+        assertEquals("b4d3", game.fromSan("Nb4d3").toUci());
+    }
+
+    @Test
+    void marksCheckAndCheckmate() {
+        var game = new Game("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", game.toSan(game.fromUci("a1a8")));
+        game = new Game("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1");
+        assertEquals("Ra8+", game.toSan(game.fromUci("a1a8")));
+        assertEquals("O-O-O", game.toSan(game.fromSan("0-0-0")));
+    }
+
+    @Test
+    void rejectsIllegalMoves() {
+        var game = new Game("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> game.fromSan("e5"));
+        assertThrows(IllegalArgumentException.class, () -> game.fromSan("O-O"));
+        assertThrows(IllegalArgumentException.class, () -> game.fromUci("e7e5"));
+        assertThrows(IllegalArgumentException.class, () -> game.fromUci("e2e9"));
+    }
+}
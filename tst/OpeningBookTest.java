@@ -0,0 +1,88 @@
+import backend.Game;
+import backend.PolyglotKey;
+import bot.OpeningBook;
+import org.junit.jupiter.api.Test;
+import tools.BookBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OpeningBookTest {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String GAMES = """
+            [Event "First"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1-0
+
+            [Event "Second"]
+
+            1. d4 d5 2. c4 e6 0-1
+            """;
+
+    private static Path buildBook() throws IOException {
+        var pgn = Files.createTempFile("games", ".pgn");
+        var book = Files.createTempFile("book", ".bin");
+        pgn.toFile().deleteOnExit();
+        book.toFile().deleteOnExit();
+        Files.writeString(pgn, GAMES);
+        BookBuilder.main(new String[]{pgn.toString(), "--output", book.toString()});
+        return book;
+    }
+
+    @Test
+    void picksWeightedBookMoves() throws IOException {
+        var path = buildBook();
+        assertEquals(12 * OpeningBook.ENTRY_SIZE, Files.size(path));
+        try (var book = OpeningBook.open(path)) {
+            var game = new Game(START);
+            Set<String> picked = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                picked.add(book.pick(game).orElseThrow().toUci());
+            }
+            assertEquals(Set.of("e2e4", "d2d4"), picked);
+            game.fromSan("a3").perform();
+            assertTrue(book.pick(game).isEmpty());
+        }
+    }
+
+    @Test
+    void castlingIsStoredAsKingTakesRook() throws IOException {
+        try (var book = OpeningBook.open(buildBook())) {
+            var game = new Game(START);
+            for (var san : new String[]{"e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5"}) {
+                game.fromSan(san).perform();
+            }
+            var castling = book.pick(game).orElseThrow();
+            assertEquals("e1g1", castling.toUci());
+            assertEquals(0b000_000100_000111, OpeningBook.encode(game, castling));
+        }
+    }
+
+    @Test
+    void keysMatchPolyglot() {
+        var game = new Game(START);
+        assertEquals(0x463b96181691fc9cL, PolyglotKey.of(game));
+        // The keys the format documents after each move, which take en passant only where a pawn could capture
+        var moves = new String[]{"e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"};
+        var keys = new long[]{0x823c9b50fd114196L, 0x0756b94461c50fb0L, 0x662fafb965db29d4L, 0x22a48b5a8e47ff78L,
+                0x652a607ca3f242c1L, 0x00fdd303c946bdd9L};
+        for (int i = 0; i < moves.length; i++) {
+            game.fromUci(moves[i]).perform();
+            assertEquals(keys[i], PolyglotKey.of(game), moves[i]);
+        }
+        game = new Game(START);
+        for (var move : new String[]{"a2a4", "b7b5", "h2h4", "b5b4", "c2c4"}) {
+            game.fromUci(move).perform();
+        }
+        assertEquals(0x3c8123ea7b067637L, PolyglotKey.of(game));
+        game.fromUci("b4c3").perform();
+        game.fromUci("a1a3").perform();
+        assertEquals(0x5c3f9b829b279560L, PolyglotKey.of(game));
+    }
+}
@@ -0,0 +1,74 @@
+import backend.Game;
+import backend.PackedPosition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PackedPositionTest {
+    private static ByteBuffer encode(String fen) {
+        var buffer = ByteBuffer.allocate(PackedPosition.SIZE);
+        PackedPosition.encode(new Game(fen), buffer);
+        assertEquals(PackedPosition.SIZE, buffer.position());
+        return buffer.flip();
+    }
+
+    private static void assertRoundTrip(String fen) {
+        var buffer = encode(fen);
+        var game = PackedPosition.decode(buffer);
+        assertEquals(fen, game.toFen());
+        assertEquals(new Game(fen).getZobristHash(), game.getZobristHash());
+        assertEquals(PackedPosition.SIZE, buffer.position());
+    }
+
+    @Test
+    void roundTrips() {
+        assertRoundTrip("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertRoundTrip("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        assertRoundTrip("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        assertRoundTrip("4k3/8/8/2PpP3/8/8/8/4K3 w - d6 0 1");
+        assertRoundTrip("4k3/8/8/8/4pPp1/8/8/4K3 b - f3 12 40");
+        assertRoundTrip("8/8/8/8/8/8/8/K6k b - - 100 1000000");
+    }
+
+    @Test
+    void positionsFollowEachOther() {
+        var first = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+        var second = "4k3/8/8/8/8/8/8/R3K3 w Q - 3 20";
+        var buffer = ByteBuffer.allocate(2 * PackedPosition.SIZE);
+        PackedPosition.encode(new Game(first), buffer);
+        PackedPosition.encode(new Game(second), buffer);
+        buffer.flip();
+        assertEquals(first, PackedPosition.decode(buffer).toFen());
+        assertEquals(second, PackedPosition.decode(buffer).toFen());
+    }
+
+    @Test
+    void playsOnAfterDecoding() {
+        var buffer = encode("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        var game = PackedPosition.decode(buffer);
+        game.fromSan("O-O").perform();
+        assertEquals("r3k2r/8/8/8/8/8/8/R4RK1 b kq - 1 1", game.toFen());
+    }
+
+    @Test
+    void rejectsMalformed() {
+        var invalidCode = encode("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        invalidCode.put(Long.BYTES, (byte) 0xFF);
+        assertThrows(IllegalArgumentException.class, () -> PackedPosition.decode(invalidCode));
+        var missingKing = encode("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        missingKing.put(Long.BYTES, (byte) 0x55);
+        assertThrows(IllegalArgumentException.class, () -> PackedPosition.decode(missingKing));
+        var castling = encode("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        castling.put(3 * Long.BYTES, (byte) 0x1E);
+        assertThrows(IllegalArgumentException.class, () -> PackedPosition.decode(castling));
+        var enPassant = encode("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        enPassant.put(3 * Long.BYTES + 1, (byte) 5);
+        assertThrows(IllegalArgumentException.class, () -> PackedPosition.decode(enPassant));
+        var clock = encode("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        clock.put(3 * Long.BYTES + 2, (byte) 101);
+        assertThrows(IllegalArgumentException.class, () -> PackedPosition.decode(clock));
+    }
+}
@@ -0,0 +1,104 @@
+import backend.Piece;
+import org.junit.jupiter.api.Test;
+import pgn.PgnGame;
+import pgn.PgnReader;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PgnReaderTest {
+    private static final String PGN = """
+            [Event "Scholar's mate"]
+            [White "Someone \\"Quoted\\""]
+            [Result "1-0"]
+
+            1. e4 e5 {The usual} 2. Bc4 (2. Nf3 Nc6 (2... d6) 3. Bb5) 2... Nc6 3. Qh5 Nf6?? 4. Qxf7# 1-0
+
+            [Event "Castling and promotion"]
+            [SetUp "1"]
+            [FEN "r3k3/6P1/8/8/8/8/8/4K2R w Kq - 0 1"]
+
+            1. O-O O-O-O 2. g8=Q Rxg8 *
+
+            [Event "Broken"]
+
+            1. e4 e5 2. Ke3 Nc6 0-1
+            """;
+
+    private static List<PgnGame> read(boolean keepVariations) {
+        return read(PGN, keepVariations);
+    }
+
+    private static List<PgnGame> read(String pgn, boolean keepVariations) {
+        var input = new ByteArrayInputStream(pgn.getBytes(StandardCharsets.ISO_8859_1));
+        try (var reader = new PgnReader(Channels.newChannel(input), keepVariations)) {
+            return reader.games().toList();
+        }
+    }
+
+    @Test
+    void readsTagsAndMoves() {
+        var games = read(false);
+        assertEquals(3, games.size());
+        var mate = games.get(0);
+        assertEquals("Someone \"Quoted\"", mate.tag("White").orElseThrow());
+        assertEquals(7, mate.moves().size());
+        assertEquals("1-0", mate.result());
+        assertEquals("The usual", mate.comments().get(2));
+        assertTrue(mate.game().generateMoves().isCheckmate());
+        assertTrue(mate.variations().isEmpty());
+    }
+
+    @Test
+    void keepsVariations() {
+        var variations = read(true).get(0).variations();
+        assertEquals(List.of("2. Nf3 Nc6 (2... d6) 3. Bb5"), variations.get(3));
+    }
+
+    @Test
+    void replaysCastlingAndPromotion() {
+        var game = read(false).get(1);
+        assertEquals(4, game.moves().size());
+        assertEquals("*", game.result());
+        assertTrue(game.error().isEmpty());
+        assertEquals(Piece.Type.QUEEN, game.moves().get(2).promotionPieceType().orElseThrow());
+        assertEquals("d8", game.moves().get(3).start.toString());
+    }
+
+    @Test
+    void stopsAtIllegalMove() {
+        var game = read(false).get(2);
+        assertEquals(2, game.moves().size());
+        assertEquals("0-1", game.result());
+        assertTrue(game.error().isPresent());
+    }
+
+    @Test
+    void skipsGameWithMalformedFen() {
+        var games = read("""
+                [Event "Bad position"]
+                [SetUp "1"]
+                [FEN "not a position"]
+
+                1. e4 e5 1-0
+
+                [Event "Good"]
+
+                1. d4 d5 1/2-1/2
+                """, false);
+        assertEquals(2, games.size());
+        var bad = games.get(0);
+        assertTrue(bad.error().isPresent());
+        assertTrue(bad.moves().isEmpty());
+        assertEquals("1-0", bad.result());
+        var good = games.get(1);
+        assertTrue(good.error().isEmpty());
+        assertEquals(2, good.moves().size());
+        assertEquals("Good", good.tag("Event").orElseThrow());
+    }
+}
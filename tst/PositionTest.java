@@ -0,0 +1,29 @@
+import backend.Color;
+import backend.Game;
+import backend.Piece;
+import backend.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PositionTest {
+    @Test
+    void positionsAndPiecesAreInterned() {
+        assertSame(Position.of(3, 4), Position.of(3, 4));
+        assertEquals("e5", Position.of(3, 4).toString());
+        assertSame(Piece.of(Piece.Type.QUEEN, Color.BLACK), Piece.of(Piece.Type.QUEEN, Color.BLACK));
+        var game = new Game("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertSame(Piece.of(Piece.Type.KING, Color.WHITE), game.getBoard()[7][4]);
+        for (var move : game.generateMoves().moves()) {
+            assertSame(Position.of(move.end.row, move.end.column), move.end);
+        }
+    }
+
+    @Test
+    void positionOffTheBoard() {
+        assertThrows(IllegalArgumentException.class, () -> Position.of(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> Position.of(-1, 0));
+    }
+}
@@ -0,0 +1,39 @@
+import org.junit.jupiter.api.Test;
+import tools.Sprt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SprtTest {
+    private static final Sprt SPRT = new Sprt(0, 10, 0.05, 0.05);
+
+    @Test
+    void eloFromScore() {
+        assertEquals(0, Math.round(Sprt.elo(30, 40, 30)));
+        assertEquals(147, Math.round(Sprt.elo(60, 20, 20)));
+        assertEquals(-147, Math.round(Sprt.elo(20, 20, 60)));
+        assertTrue(Sprt.eloError(300, 400, 300) < Sprt.eloError(30, 40, 30));
+    }
+
+    @Test
+    void decidesOnlyOnceThereAreEnoughGames() {
+        assertEquals(Sprt.Decision.UNDECIDED, SPRT.decide(0, 0, 0));
+        assertEquals(Sprt.Decision.UNDECIDED, SPRT.decide(6, 3, 4));
+        assertEquals(Sprt.Decision.STRONGER, SPRT.decide(600, 300, 400));
+        assertEquals(Sprt.Decision.NOT_STRONGER, SPRT.decide(400, 300, 600));
+        assertEquals(Sprt.Decision.NOT_STRONGER, SPRT.decide(0, 5000, 0));
+    }
+
+    @Test
+    void oneSidedResultsDecide() {
+        assertEquals(Sprt.Decision.STRONGER, SPRT.decide(200, 0, 0));
+        assertEquals(Sprt.Decision.NOT_STRONGER, SPRT.decide(0, 0, 200));
+    }
+
+    @Test
+    void rejectsBadBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new Sprt(5, 0, 0.05, 0.05));
+        assertThrows(IllegalArgumentException.class, () -> new Sprt(0, 5, 0, 0.05));
+    }
+}
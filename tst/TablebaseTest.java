@@ -0,0 +1,54 @@
+import backend.Game;
+import org.junit.jupiter.api.Test;
+import tablebase.Generator;
+import tablebase.Outcome;
+import tablebase.Tablebases;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TablebaseTest {
+    private static Path directory;
+
+    private static synchronized Tablebases tablebases() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("tablebases");
+            directory.toFile().deleteOnExit();
+            Generator.generate(directory, "KQvK");
+            directory.resolve("KQvK.tb").toFile().deleteOnExit();
+        }
+        return Tablebases.open(directory);
+    }
+
+    @Test
+    void kingAndQueenAgainstKing() throws IOException {
+        try (var tablebases = tablebases()) {
+            var mateInOne = tablebases.probe(new Game("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1")).orElseThrow();
+            assertEquals(Outcome.Result.WIN, mateInOne.result);
+            assertEquals(1, mateInOne.plies);
+            var mated = tablebases.probe(new Game("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1")).orElseThrow();
+            assertEquals(Outcome.Result.LOSS, mated.result);
+            assertEquals(0, mated.plies);
+            var stalemate = tablebases.probe(new Game("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")).orElseThrow();
+            assertEquals(Outcome.Result.DRAW, stalemate.result);
+            var hanging = tablebases.probe(new Game("8/8/8/8/8/8/1k6/Q3K3 b - - 0 1")).orElseThrow();
+            assertEquals(Outcome.Result.DRAW, hanging.result);
+        }
+    }
+
+    @Test
+    void swappedColorsShareTheTable() throws IOException {
+        try (var tablebases = tablebases()) {
+            var white = tablebases.probe(new Game("8/8/8/3k4/8/1q6/8/4K3 b - - 0 1")).orElseThrow();
+            var black = tablebases.probe(new Game("4k3/8/1Q6/8/3K4/8/8/8 w - - 0 1")).orElseThrow();
+            assertEquals(Outcome.Result.WIN, white.result);
+            assertEquals(white.plies, black.plies);
+            assertTrue(white.plies <= 19);
+            assertTrue(tablebases.probe(new Game("4k3/8/8/8/8/8/8/R3K3 w - - 0 1")).isEmpty());
+        }
+    }
+}
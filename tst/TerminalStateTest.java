@@ -0,0 +1,52 @@
+import backend.Game;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TerminalStateTest {
+    @Test
+    void checkmate() {
+        var game = new Game("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        assertTrue(game.terminalState().orElseThrow().isCheckmate());
+        assertTrue(game.generateMoves().isCheckmate());
+    }
+
+    @Test
+    void stalemate() {
+        var game = new Game("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals("stalemate", game.terminalState().orElseThrow().terminalType());
+        assertEquals("stalemate", game.generateMoves().terminalType());
+    }
+
+    @Test
+    void notTerminal() {
+        var game = new Game("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertTrue(game.terminalState().isEmpty());
+        assertFalse(game.generateMoves().isTerminal());
+    }
+
+    @Test
+    void checkmateBeforeFiftyMoveRule() {
+        var mate = new Game("R5k1/5ppp/8/8/8/8/8/6K1 b - - 100 80");
+        assertTrue(mate.terminalState().orElseThrow().isCheckmate());
+        var check = new Game("R6k/7p/8/8/8/8/8/6K1 b - - 100 80");
+        assertEquals("fiftyMoveRule", check.terminalState().orElseThrow().terminalType());
+    }
+
+    @Test
+    void insufficientMaterialAfterCapture() {
+        var game = new Game("4k3/8/8/8/8/8/3r4/4K3 w - - 0 1");
+        assertTrue(game.terminalState().isEmpty());
+        game.fromSan("Kxd2").perform();
+        assertEquals("insufficientMatingMaterial", game.terminalState().orElseThrow().terminalType());
+    }
+
+    @Test
+    void pawnPushResetsHalfMoveClock() {
+        var game = new Game("4k3/8/8/8/8/8/4P3/4K3 w - - 7 40");
+        game.fromSan("e3").perform();
+        assertEquals("4k3/8/8/8/8/4P3/8/4K3 b - - 0 40", game.toFen());
+    }
+}
@@ -0,0 +1,55 @@
+import bot.EvaluationTuner;
+import bot.TuningSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TuningTest {
+    private static final String LABELLED = String.join("\n",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - c9 \"1/2-1/2\";",
+            "4k3/8/8/8/8/8/3Q4/4K3 w - - [1.0]",
+            "4k3/8/8/8/8/8/3Q4/4K3 b - - 0 1 1-0",
+            "4k3/3q4/8/8/8/8/8/4K3 w - - 0 1 0-1",
+            "4k3/8/8/8/8/8/8/3QK3 b - - 0.5",
+            "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - c9 \"1-0\";",
+            "4k3/8/8/8/8/8/8/4K2R b K - 0 1 ?",
+            "# a comment 1-0");
+
+    @Test
+    void readsQuietLabelledPositions() throws IOException {
+        var file = Files.createTempFile("labelled", ".epd");
+        try {
+            Files.writeString(file, LABELLED);
+            var positions = TuningSet.read(List.of(file));
+            assertEquals(5, positions.size());
+            assertEquals(3, positions.skipped());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void tuningLowersTheError() throws IOException {
+        var file = Files.createTempFile("labelled", ".epd");
+        try {
+            Files.writeString(file, LABELLED);
+            var tuner = new EvaluationTuner(TuningSet.read(List.of(file)));
+            var source = tuner.toSource();
+            assertTrue(source.contains("static final int KNIGHT_VALUE = 320;"));
+            assertTrue(source.contains("        new int[]{-30,   5,  15,  20,  20,  15,   5, -30},"));
+            assertTrue(source.contains("static final int CASTLE_OPPORTUNITY_VALUE = 25;"));
+            double error = tuner.error();
+            for (int i = 0; i < 20; i++) {
+                tuner.step(1);
+            }
+            assertTrue(tuner.error() < error);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package bot;
+
+import backend.Game;
+import backend.Move;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AccumulatorTest {
+    private static final int HIDDEN_SIZE = 16;
+    // Many short walks come back to the starting position, and the moves special to it, more often than one long one
+    private static final int WALKS = 100;
+    private static final int STEPS = 40;
+
+    private static Network randomNetwork() throws IOException {
+        var path = Files.createTempFile("network", ".bin");
+        var random = new Random(5);
+        try {
+            try (var output = new DataOutputStream(Files.newOutputStream(path))) {
+                output.writeInt(0x414A4E4E);
+                output.writeInt(HIDDEN_SIZE);
+                for (int i = 0; i < Network.FEATURE_COUNT * HIDDEN_SIZE; i++) {
+                    output.writeShort(random.nextInt(121) - 60);
+                }
+                for (int i = 0; i < HIDDEN_SIZE; i++) {
+                    output.writeShort(random.nextInt(101));
+                }
+                for (int i = 0; i < 2 * HIDDEN_SIZE; i++) {
+                    output.writeShort(random.nextInt(121) - 60);
+                }
+                output.writeInt(1000);
+            }
+            return Network.load(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    // Castling, en passant, promotions, and captures all come up within a few moves of these
+    @Test
+    void pushesAndPopsMatchEvaluatingFromScratch() throws IOException {
+        var network = randomNetwork();
+        var random = new Random(7);
+        for (var fen : new String[]{
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"}) {
+            for (int walk = 0; walk < WALKS; walk++) {
+                var game = new Game(fen);
+                var accumulator = new Accumulator(network);
+                accumulator.refresh(game);
+                var played = new ArrayList<Move>();
+                for (int step = 0; step < STEPS; step++) {
+                    var state = game.generateMoves();
+                    if (!state.isTerminal() && (played.isEmpty() || random.nextInt(3) != 0)) {
+                        var move = state.moves().get(random.nextInt(state.moves().size()));
+                        accumulator.push(game, move);
+                        move.perform();
+                        played.add(move);
+                    } else {
+                        played.remove(played.size() - 1).undo();
+                        accumulator.pop();
+                    }
+                    var message = game.toFen();
+                    assertEquals(network.evaluate(game), accumulator.evaluate(game.getActivePlayer()), message);
+                }
+            }
+        }
+    }
+}